@@ -0,0 +1,66 @@
+package com.aziubin;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure throughput of adding holidays one by one in random order into a calendar,
+ * which already contains specified number of holidays.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AddHolidayBenchmark {
+    private static final int BATCH = 1024;
+
+    @Param({"TreeSet", "EpochDay"})
+    String implementation;
+
+    @Param({"1000", "100000"})
+    int holidays;
+
+    LocalDate[] dates = new LocalDate[BATCH];
+    Workdays workdays;
+
+    @Setup(Level.Invocation)
+    public void setup() throws DateReaderException {
+        Random random = new Random(holidays);
+        LocalDate startDate = LocalDate.of(1970, 1, 1);
+        workdays = WorkdaysBenchmarks.create(implementation);
+        workdays.load(new SequentialDateReader(startDate, startDate.plusDays(holidays - 1)));
+        for (int i = 0; i < BATCH; ++i) {
+            dates[i] = startDate.plusDays(random.nextInt(holidays * 2));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int addHoliday() {
+        int result = 0;
+        for (LocalDate date : dates) {
+            if (workdays.addHoliday(date)) {
+                ++result;
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.aziubin;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure workdays calculation across range lengths and holiday densities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GetWorkdaysBenchmark {
+    private static final int FIRST_YEAR = 1950;
+    private static final int YEARS = 100;
+    private static final int QUERIES = 1024;
+
+    @Param({"TreeSet", "EpochDay", "Concurrent", "Bitset", "CachingTreeSet", "OffHeap"})
+    String implementation;
+
+    @Param({"7", "365", "3650"})
+    int rangeDays;
+
+    @Param({"10", "50", "250"})
+    int holidaysPerYear;
+
+    Workdays workdays;
+    LocalDate[] startDates = new LocalDate[QUERIES];
+    LocalDate[] endDates = new LocalDate[QUERIES];
+    int[] startEpochDays = new int[QUERIES];
+    int[] endEpochDays = new int[QUERIES];
+    long[] result = new long[QUERIES];
+    int queryIdx;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(FIRST_YEAR);
+        workdays = WorkdaysBenchmarks.create(implementation);
+        for (int year = FIRST_YEAR; year < FIRST_YEAR + YEARS; ++year) {
+            LocalDate yearStart = LocalDate.of(year, 1, 1);
+            for (int i = 0; i < holidaysPerYear; ++i) {
+                workdays.addHoliday(yearStart.plusDays(random.nextInt(yearStart.lengthOfYear())));
+            }
+        }
+        LocalDate firstDate = LocalDate.of(FIRST_YEAR, 1, 1);
+        int maxStartDay = YEARS * 365 - rangeDays;
+        for (int i = 0; i < QUERIES; ++i) {
+            startDates[i] = firstDate.plusDays(random.nextInt(maxStartDay));
+            endDates[i] = startDates[i].plusDays(rangeDays - 1);
+            startEpochDays[i] = (int) startDates[i].toEpochDay();
+            endEpochDays[i] = (int) endDates[i].toEpochDay();
+        }
+    }
+
+    /**
+     * Release native memory of off-heap calendars, which is not reclaimed by garbage collection.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        if (workdays instanceof AutoCloseable) {
+            ((AutoCloseable) workdays).close();
+        }
+    }
+
+    @Benchmark
+    public long getWorkdays() {
+        int i = queryIdx++ & (QUERIES - 1);
+        return workdays.getWorkdays(startDates[i], endDates[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long[] getWorkdaysBatch() {
+        workdays.getWorkdays(startEpochDays, endEpochDays, result);
+        return result;
+    }
+
+}
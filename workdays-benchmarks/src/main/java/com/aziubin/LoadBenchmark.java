@@ -0,0 +1,72 @@
+package com.aziubin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure loading of JSON array with holidays through StreamDateReader,
+ * one by one and in bulk, and through ParallelDateReader on the common pool.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    @Param({"TreeSet", "EpochDay", "Bitset"})
+    String implementation;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    int dates;
+
+    byte[] json;
+
+    @Setup
+    public void setup() throws DateReaderException, IOException {
+        LocalDate startDate = LocalDate.of(1970, 1, 1);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(dates * 13);
+        DateWriter writer = new StreamDateWriter(stream);
+        for (int i = 0; i < dates; ++i) {
+            writer.write(startDate.plusDays(i));
+        }
+        writer.commit();
+        json = stream.toByteArray();
+    }
+
+    @Benchmark
+    public long load() throws DateReaderException {
+        Workdays workdays = WorkdaysBenchmarks.create(implementation);
+        return workdays.load(new StreamDateReader(new ByteArrayInputStream(json)));
+    }
+
+    @Benchmark
+    public long loadAll() throws DateReaderException {
+        Workdays workdays = WorkdaysBenchmarks.create(implementation);
+        return workdays.loadAll(new StreamDateReader(new ByteArrayInputStream(json)));
+    }
+
+    @Benchmark
+    public long loadParallel() throws DateReaderException {
+        Workdays workdays = WorkdaysBenchmarks.create(implementation);
+        return workdays.loadAll(new ParallelDateReader(ByteBuffer.wrap(json)));
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.aziubin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure saving of holidays as JSON array through StreamDateWriter.
+ * Output is discarded, so only formatting and writer overhead is measured.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SaveBenchmark {
+    private static final OutputStream NULL_STREAM = new OutputStream() {
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] b, int off, int len) {}
+    };
+
+    @Param({"TreeSet", "EpochDay"})
+    String implementation;
+
+    @Param({"1000", "100000", "10000000"})
+    int dates;
+
+    Workdays workdays;
+
+    @Setup
+    public void setup() throws DateReaderException {
+        workdays = WorkdaysBenchmarks.create(implementation);
+        LocalDate startDate = LocalDate.of(1970, 1, 1);
+        workdays.load(new SequentialDateReader(startDate, startDate.plusDays(dates - 1)));
+    }
+
+    @Benchmark
+    public long save() throws IOException {
+        return workdays.save(new StreamDateWriter(NULL_STREAM));
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.aziubin;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks jar, which accepts regular JMH command line options
+ * and always enables GC profiler, so each benchmark reports allocation rate.
+ */
+public class WorkdaysBenchmarks {
+    private static final int CACHE_CAPACITY = 4096;
+
+    private WorkdaysBenchmarks() {}
+
+    /**
+     * Create an empty instance of the benchmarked implementation.
+     * @param implementation simple name of the implementation without Workdays suffix.
+     */
+    static Workdays create(String implementation) {
+        switch (implementation) {
+        case "TreeSet":
+            return new TreeSetWorkdays();
+        case "EpochDay":
+            return new EpochDayWorkdays();
+        case "Concurrent":
+            return new ConcurrentWorkdays();
+        case "Bitset":
+            return new BitsetWorkdays();
+        case "OffHeap":
+            return new OffHeapWorkdays();
+        case "CachingTreeSet":
+            return new CachingWorkdays(new TreeSetWorkdays(), CACHE_CAPACITY);
+        default:
+            throw new IllegalArgumentException("Unknown implementation: " + implementation);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
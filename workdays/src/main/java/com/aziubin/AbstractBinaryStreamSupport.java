@@ -0,0 +1,36 @@
+package com.aziubin;
+
+/**
+ * Compact binary holiday file reader and writer base class.
+ * The file starts with the header of magic number and format version,
+ * followed by epoch days, each encoded as zigzag varint of the difference
+ * from the previous epoch day (from zero for the first one).
+ * Dates are expected in sorted order, so differences are small and take one or two bytes,
+ * but any order is still supported. The end of file is the end of the sequence.
+ */
+abstract class AbstractBinaryStreamSupport {
+    final static byte[] MAGIC = {'W', 'D', 'A', 'Y'};
+    final static byte VERSION = 1;
+    final static int HEADER_LENGTH = MAGIC.length + 1;
+    final static String BINARY_FILE_EXTENSION = ".wdb";
+
+    final static int VARINT_PAYLOAD_BITS = 7;
+    final static int VARINT_PAYLOAD_MASK = 0x7F;
+    final static int VARINT_CONTINUATION = 0x80;
+
+    /**
+     * @return true when the buffer starts with the magic number of binary format.
+     */
+    static boolean isBinaryHeader(byte[] header, int length) {
+        if (length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; ++i) {
+            if (MAGIC[i] != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.aziubin;
 
+import java.time.DateTimeException;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -11,10 +12,93 @@ abstract class AbstractJsonStreamSupport {
 
     final static char JSON_SEPARATOR = ',';
     final static char JSON_QUOTE = '"';
-    final static String JSON_SEPARATOR_PATTERN = "[\t\r\n ,\"]+";
-    final static String JSON_NON_WORD_PATTERN = "[\t\r\n \"]+";
 
     static final String YYYY_MMM_DD = "yyyy-MM-dd"; // todo ISO 8601 compatible
     final static DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(YYYY_MMM_DD);
 
+    /**
+     * The number of days from 0000-01-01 to 1970-01-01.
+     */
+    private static final long DAYS_0000_TO_1970 = 719528;
+
+    /**
+     * The range of years, which are formatted as exactly four digits by DATE_TIME_FORMATTER,
+     * and corresponding range of epoch days.
+     */
+    static final int MIN_FOUR_DIGIT_YEAR = 1;
+    static final int MAX_FOUR_DIGIT_YEAR = 9999;
+    static final long MIN_FOUR_DIGIT_YEAR_EPOCH_DAY = -719162;
+    static final long MAX_FOUR_DIGIT_YEAR_EPOCH_DAY = 2932896;
+
+    /**
+     * The number of days in 400 year cycle.
+     */
+    private static final long DAYS_PER_CYCLE = 146097;
+
+    static boolean isLeapYear(long year) {
+        return 0 == (year & 3) && (0 != year % 100 || 0 == year % 400);
+    }
+
+    /**
+     * Convert date fields to epoch day without creation of LocalDate instance,
+     * following the same calculation as LocalDate.toEpochDay().
+     * @throws DateTimeException when fields do not represent a valid date.
+     */
+    static long toEpochDay(int year, int month, int day) {
+        int monthLength;
+        switch (month) {
+        case 2:
+            monthLength = isLeapYear(year) ? 29 : 28;
+            break;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            monthLength = 30;
+            break;
+        default:
+            monthLength = 31;
+        }
+        if (month < 1 || month > 12 || day < 1 || day > monthLength) {
+            throw new DateTimeException("Invalid date " + year + "-" + month + "-" + day);
+        }
+        long y = year;
+        long total = 365 * y;
+        if (y >= 0) {
+            total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        } else {
+            total -= y / -4 - y / -100 + y / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            --total;
+            if (!isLeapYear(year)) {
+                --total;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Convert epoch day to date fields without creation of LocalDate instance,
+     * following the same calculation as LocalDate.ofEpochDay().
+     * @param epochDay epoch day within the range of four digit years.
+     * @return the date packed as decimal yyyyMMdd value.
+     */
+    static int toYearMonthDay(long epochDay) {
+        long zeroDay = epochDay + DAYS_0000_TO_1970 - 60;  // start the year from March.
+        long year = (400 * zeroDay + 591) / DAYS_PER_CYCLE;
+        long dayOfYear = zeroDay - (365 * year + year / 4 - year / 100 + year / 400);
+        if (dayOfYear < 0) {
+            --year;
+            dayOfYear = zeroDay - (365 * year + year / 4 - year / 100 + year / 400);
+        }
+        int marchMonth = (int) (dayOfYear * 5 + 2) / 153;
+        int month = (marchMonth + 2) % 12 + 1;
+        int day = (int) dayOfYear - (marchMonth * 306 + 5) / 10 + 1;
+        year += marchMonth / 10;
+        return (int) year * 10000 + month * 100 + day;
+    }
+
 }
@@ -1,12 +1,23 @@
 package com.aziubin;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Base class for workdays subclasses supporting loading of holiday dates.
  */
 public abstract class AbstractLoadableWorkdays implements Workdays {
 
+    /**
+     * Approximate sizes of an instance and array header, assuming compressed references,
+     * which are used to estimate memory footprint of subclasses.
+     */
+    static final int OBJECT_SIZE = 48;
+    static final int ARRAY_HEADER_SIZE = 16;
+
     @Override
     public long load(DateReader reader) throws DateReaderException {
         int result = 0;
@@ -20,6 +31,65 @@ public abstract class AbstractLoadableWorkdays implements Workdays {
         return result;
     }
 
+    /**
+     * Asynchronous counterpart of {@link #load(DateReader)}, which does not block the calling thread.
+     * The next batch is requested before the current one is indexed, so fetching overlaps
+     * with filtering and sorting of already delivered dates into runs. When the reader is exhausted,
+     * the runs are merged and replace holidays through {@link #loadAll(DateReader)} at once,
+     * so the result is the same as for load() of the same dates.
+     * Holidays are replaced in the thread completing the last batch, so implementations,
+     * which are not thread-safe, should not be queried until the returned future is completed.
+     * @param reader the reader, which asynchronously provides holiday days.
+     * @return the future completed with the number of holiday entries successfully loaded,
+     * or exceptionally when the reader fails.
+     */
+    public CompletableFuture<Long> loadAsync(AsyncDateReader reader) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        try {
+            drain(reader, reader.readBatchAsync(), new ArrayList<>(), getWeekendRule(), result);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Process delivered batches in a loop while they are already available,
+     * and continue in the completion callback otherwise, so the stack does not grow per batch.
+     */
+    private void drain(AsyncDateReader reader, CompletableFuture<int[]> pending, List<int[]> runs,
+            WeekendRule weekendRule, CompletableFuture<Long> result) {
+        try {
+            while (pending.isDone()) {
+                int[] batch = pending.join();
+                if (0 == batch.length) {
+                    while (runs.size() > 1) {
+                        // Merge pairwise, so each day is copied a logarithmic number of times.
+                        List<int[]> merged = new ArrayList<>((runs.size() + 1) / 2);
+                        for (int i = 0; i < runs.size(); i += 2) {
+                            merged.add(i + 1 < runs.size() ? HolidayIndex.merge(runs.get(i), runs.get(i + 1)) : runs.get(i));
+                        }
+                        runs = merged;
+                    }
+                    int[] days = runs.isEmpty() ? new int[0] : runs.get(0);
+                    result.complete(loadAll(new ArrayDateReader(days, days.length)));
+                    return;
+                }
+                pending = reader.readBatchAsync();
+                runs.add(HolidayIndex.of(batch, batch.length, weekendRule).days);
+            }
+        } catch (CompletionException e) {
+            result.completeExceptionally(null == e.getCause() ? e : e.getCause());
+            return;
+        } catch (DateReaderException | RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        CompletableFuture<int[]> next = pending;
+        List<int[]> nextRuns = runs;
+        next.whenComplete((batch, e) -> drain(reader, next, nextRuns, weekendRule, result));
+    }
+
     @Override
     public abstract boolean addHoliday(LocalDate holidayDate);
 
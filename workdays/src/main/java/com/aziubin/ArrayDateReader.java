@@ -0,0 +1,42 @@
+package com.aziubin;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Implementation of DateReader interface over epoch days already collected in memory,
+ * which hands over the whole array to bulk loading without copying.
+ */
+class ArrayDateReader implements DateReader {
+    int[] days;
+    int length;
+    int position;
+
+    /**
+     * @param days epoch days, the array is owned by the reader afterwards.
+     * @param length the number of leading array entries to read.
+     */
+    ArrayDateReader(int[] days, int length) {
+        this.days = days;
+        this.length = length;
+    }
+
+    @Override
+    public long readEpochDay() {
+        return position < length ? days[position++] : NO_DATE;
+    }
+
+    @Override
+    public LocalDate read() {
+        long epochDay = readEpochDay();
+        return NO_DATE == epochDay ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    @Override
+    public int[] readEpochDays() {
+        int[] result = 0 == position && length == days.length ? days : Arrays.copyOfRange(days, position, length);
+        position = length;
+        return result;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.aziubin;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Implementation of DateWriter interface, which collects epoch days in memory,
+ * so holidays of any Workdays implementation can be obtained as a primitive array.
+ */
+class ArrayDateWriter implements DateWriter {
+    boolean isEof = false;
+    int[] days = new int[1024];
+    int length;
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > days.length) {
+            days = Arrays.copyOf(days, Math.max(capacity, days.length << 1));
+        }
+    }
+
+    @Override
+    public void write(LocalDate date) throws IOException {
+        if (isEof) {
+            throw new EOFException("Attempt to write over the end of holiday sequence.");
+        }
+        ensureCapacity(length + 1);
+        days[length++] = Math.toIntExact(date.toEpochDay());
+    }
+
+    @Override
+    public void write(int[] epochDays, int offset, int length) throws IOException {
+        if (isEof) {
+            throw new EOFException("Attempt to write over the end of holiday sequence.");
+        }
+        ensureCapacity(this.length + length);
+        System.arraycopy(epochDays, offset, days, this.length, length);
+        this.length += length;
+    }
+
+    @Override
+    public void commit() {
+        isEof = true;
+    }
+
+    /**
+     * @return written epoch days in the order of writing.
+     */
+    int[] toArray() {
+        return Arrays.copyOf(days, length);
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.aziubin;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interface intended to read dates from remote or slow sources, for example, a database,
+ * without blocking a thread per date.
+ * Dates are delivered in batches, and the next batch is requested only after the previous one
+ * is delivered, so a slow consumer naturally limits the number of batches in flight.
+ */
+public interface AsyncDateReader {
+
+    /**
+     * Request the next batch of dates. The method is not called again
+     * until the returned future is completed.
+     * @return the future completed with epoch days of the next batch in any order,
+     * which is owned by the caller afterwards, or with an empty array when dates cannot be read anymore.
+     * The future is completed exceptionally, for example with DateReaderException, when the batch cannot be read.
+     */
+    CompletableFuture<int[]> readBatchAsync();
+
+}
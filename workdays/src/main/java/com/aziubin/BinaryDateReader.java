@@ -0,0 +1,130 @@
+package com.aziubin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * Implementation of DateReader interface, which expects compact binary format
+ * in the underlying stream or buffer.
+ */
+class BinaryDateReader extends AbstractBinaryStreamSupport implements DateReader {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int END_OF_INPUT = -1;
+
+    boolean isBof = true;
+    boolean isEof = false;
+
+    /**
+     * Source of subsequent chunks or null, when the whole input is already in the buffer.
+     */
+    InputStream stream;
+    ByteBuffer buffer;
+
+    /**
+     * The number of bytes consumed before the current chunk, adjusted by initial buffer position.
+     */
+    long chunkOffset;
+    long previousEpochDay;
+
+    BinaryDateReader(InputStream stream) {
+        this.stream = stream;
+        buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        buffer.limit(0);
+    }
+
+    /**
+     * Constructs the reader of binary format contained in the remaining bytes of the buffer,
+     * for example, memory mapped file.
+     * @param buffer the buffer, which position is advanced while reading.
+     */
+    BinaryDateReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.chunkOffset = -buffer.position();
+    }
+
+    /**
+     * @return the next byte as unsigned value or END_OF_INPUT.
+     */
+    private int nextByte() throws DateReaderException {
+        while (!buffer.hasRemaining()) {
+            if (null == stream) {
+                return END_OF_INPUT;
+            }
+            try {
+                int length = stream.read(buffer.array());
+                if (length < 0) {
+                    stream = null;
+                    return END_OF_INPUT;
+                }
+                chunkOffset += buffer.limit();
+                buffer.position(0);
+                buffer.limit(length);
+            } catch (IOException e) {
+                throw new DateReaderException("Cannot read binary holiday sequence.", e);
+            }
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    private void readHeader() throws DateReaderException {
+        byte[] header = new byte[HEADER_LENGTH];
+        int length = 0;
+        for (int value = nextByte(); END_OF_INPUT != value; value = nextByte()) {
+            header[length++] = (byte) value;
+            if (HEADER_LENGTH == length) {
+                break;
+            }
+        }
+        if (!isBinaryHeader(header, length)) {
+            throw new DateReaderException("Unexpected header of binary holiday sequence.");
+        } else if (HEADER_LENGTH != length || VERSION != header[MAGIC.length]) {
+            throw new DateReaderException("Unsupported version of binary holiday sequence.");
+        }
+    }
+
+    @Override
+    public long readEpochDay() throws DateReaderException {
+        if (isEof) {
+            throw new DateReaderException("Attempt to read over the end of binary holiday sequence.");
+        }
+        if (isBof) {
+            isBof = false;
+            readHeader();
+        }
+        int value = nextByte();
+        if (END_OF_INPUT == value) {
+            isEof = true;
+            return NO_DATE;
+        }
+        long zigzag = 0;
+        for (int shift = 0; ; shift += VARINT_PAYLOAD_BITS) {
+            if (shift >= Long.SIZE) {
+                throw new DateReaderException("Malformed varint in binary holiday sequence.");
+            }
+            zigzag |= (long) (value & VARINT_PAYLOAD_MASK) << shift;
+            if (0 == (value & VARINT_CONTINUATION)) {
+                break;
+            }
+            value = nextByte();
+            if (END_OF_INPUT == value) {
+                throw new DateReaderException("Unexpected end of binary holiday sequence.");
+            }
+        }
+        previousEpochDay += zigzag >>> 1 ^ -(zigzag & 1);
+        return previousEpochDay;
+    }
+
+    @Override
+    public LocalDate read() throws DateReaderException {
+        long epochDay = readEpochDay();
+        return NO_DATE == epochDay ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    @Override
+    public long getBytesRead() {
+        return chunkOffset + buffer.position();
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.aziubin;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+/**
+ * Implementation of DateWriter interface, which writes compact binary format
+ * to the underlying stream in large blocks.
+ */
+class BinaryDateWriter extends AbstractBinaryStreamSupport implements DateWriter {
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * The longest zigzag varint of 64 bit value.
+     */
+    private static final int MAX_VARINT_LENGTH = 10;
+
+    boolean isBof = true;
+    boolean isEof = false;
+    OutputStream stream;
+    byte[] block = new byte[BLOCK_SIZE];
+    int blockLength;
+    long previousEpochDay;
+
+    BinaryDateWriter(OutputStream stream) {
+        this.stream = stream;
+    }
+
+    private void writeHeader() {
+        System.arraycopy(MAGIC, 0, block, blockLength, MAGIC.length);
+        blockLength += MAGIC.length;
+        block[blockLength++] = VERSION;
+    }
+
+    @Override
+    public void write(LocalDate date) throws IOException {
+        if (isEof) {
+            throw new EOFException("Attempt to write over the end of binary holiday sequence.");
+        } else if (isBof) {
+            isBof = false;
+            writeHeader();
+        }
+        writeEpochDay(date.toEpochDay());
+    }
+
+    @Override
+    public void write(int[] epochDays, int offset, int length) throws IOException {
+        if (isEof) {
+            throw new EOFException("Attempt to write over the end of binary holiday sequence.");
+        } else if (isBof) {
+            isBof = false;
+            writeHeader();
+        }
+        for (int i = offset; i < offset + length; ++i) {
+            writeEpochDay(epochDays[i]);
+        }
+    }
+
+    private void writeEpochDay(long epochDay) throws IOException {
+        if (blockLength > BLOCK_SIZE - MAX_VARINT_LENGTH) {
+            stream.write(block, 0, blockLength);
+            blockLength = 0;
+        }
+        long delta = epochDay - previousEpochDay;
+        previousEpochDay = epochDay;
+        long value = delta << 1 ^ delta >> 63;  // zigzag, so small negative differences stay short.
+        while (0 != (value & ~VARINT_PAYLOAD_MASK)) {
+            block[blockLength++] = (byte) (value & VARINT_PAYLOAD_MASK | VARINT_CONTINUATION);
+            value >>>= VARINT_PAYLOAD_BITS;
+        }
+        block[blockLength++] = (byte) value;
+    }
+
+    @Override
+    public void commit() throws IOException {
+        if (isBof) {
+            isBof = false;
+            writeHeader();
+        }
+        isEof = true;
+        stream.write(block, 0, blockLength);
+        blockLength = 0;
+        stream.flush();
+    }
+
+}
@@ -0,0 +1,334 @@
+package com.aziubin;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Implementation optimized for dense calendars, where most days of some years are holidays,
+ * for example, plant shutdown schedules.
+ * Each year of the covered span is stored as a 366 bit bitmap of holidays in 6 long values,
+ * so memory does not depend on the number of holidays, and the number of holidays
+ * before each year is summarized by popcounts. Range count is a lookup of the summary
+ * and at most 6 Long.bitCount operations on each end of the range.
+ * The span grows to cover all holidays, so the calendar is intended for a limited range of years,
+ * and holidays spanning more than MAX_YEARS years are rejected with IllegalArgumentException.
+ */
+public class BitsetWorkdays extends AbstractLoadableWorkdays implements Workdays {
+    private static final Logger logger = Logger.getLogger(BitsetWorkdays.class.getName());
+
+    /**
+     * The number of long values per year, 366 bits rounded up.
+     */
+    static final int WORDS_PER_YEAR = 6;
+
+    /**
+     * The maximum number of covered years, which takes less than 500 KB of bits.
+     */
+    static final int MAX_YEARS = 10000;
+    private static final int WORD_BITS = Long.SIZE;
+    private static final long DAYS_PER_CYCLE = 146097;
+    private static final int YEARS_PER_CYCLE = 400;
+
+    /**
+     * Regular non-working days of the week.
+     */
+    final WeekendMask weekendMask;
+
+    /**
+     * The first covered year, meaningful when at least one year is covered.
+     */
+    int firstYear;
+
+    /**
+     * Holiday bits of covered years, the bit number is the day of the year starting from zero.
+     */
+    long[] bits = new long[0];
+
+    /**
+     * Epoch day of January 1 of each covered year followed by the one of the next year.
+     */
+    long[] yearStarts = new long[0];
+
+    /**
+     * The number of holidays before each covered year and after the last one,
+     * lazily built, patched after holidays modification and rebuilt after the span grows.
+     */
+    int[] cumulativeHolidays;
+
+    BitsetWorkdays() {
+        this(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+    }
+
+    /**
+     * Constructs an instance of BitsetWorkdays assuming customized weekend days.
+     * @param weekendSet customized set of weekend days.
+     */
+    BitsetWorkdays(Set<DayOfWeek> weekendSet) {
+        this.weekendMask = WeekendMask.of(weekendSet);
+    }
+
+    /**
+     * Constructs an instance of BitsetWorkdays assuming holiday days
+     * provided by the specified reader and customized weekend days.
+     * @param reader the reader, which provides holiday days.
+     * @param weekendSet customized set of weekend days.
+     */
+    BitsetWorkdays(DateReader reader, Set<DayOfWeek> weekendSet) throws DateReaderException {
+        this(weekendSet);
+        load(reader);
+    }
+
+    private int getYears() {
+        return bits.length / WORDS_PER_YEAR;
+    }
+
+    /**
+     * Extend covered span of years, so it includes specified years.
+     * @return the index of the first year of the range within the span.
+     */
+    private int coverYears(int startYear, int endYear) {
+        int years = getYears();
+        int newFirstYear = 0 == years ? startYear : Math.min(firstYear, startYear);
+        int newEndYear = 0 == years ? endYear : Math.max(firstYear + years - 1, endYear);
+        if (0 == years || newFirstYear != firstYear || newEndYear != firstYear + years - 1) {
+            int newYears = checkYears(newFirstYear, newEndYear);
+            long[] newBits = new long[Math.multiplyExact(newYears, WORDS_PER_YEAR)];
+            if (0 != years) {
+                System.arraycopy(bits, 0, newBits, (firstYear - newFirstYear) * WORDS_PER_YEAR, bits.length);
+            }
+            long[] newYearStarts = new long[newYears + 1];
+            for (int i = 0; i <= newYears; ++i) {
+                newYearStarts[i] = LocalDate.of(newFirstYear + i, 1, 1).toEpochDay();
+            }
+            firstYear = newFirstYear;
+            bits = newBits;
+            yearStarts = newYearStarts;
+            cumulativeHolidays = null;
+        }
+        return startYear - firstYear;
+    }
+
+    /**
+     * @return the number of years in the span, which is rejected when it exceeds MAX_YEARS.
+     */
+    private static int checkYears(int startYear, int endYear) {
+        long years = (long) endYear - startYear + 1;
+        if (years > MAX_YEARS) {
+            throw new IllegalArgumentException("Holidays span more than " + MAX_YEARS + " years: " + startYear + " - " + endYear);
+        }
+        return (int) years;
+    }
+
+    private static long getBitIndex(int yearIndex, int dayOfYear) {
+        return (long) yearIndex * WORDS_PER_YEAR * WORD_BITS + dayOfYear - 1;
+    }
+
+    /**
+     * @return the index of covered year containing the epoch day, which is within covered span.
+     */
+    private int getYearIndex(long epochDay) {
+        long[] starts = yearStarts;
+        int result = (int) Math.min(starts.length - 2, (epochDay - starts[0]) * YEARS_PER_CYCLE / DAYS_PER_CYCLE);
+        while (starts[result] > epochDay) {
+            --result;
+        }
+        while (starts[result + 1] <= epochDay) {
+            ++result;
+        }
+        return result;
+    }
+
+    private int[] getCumulativeHolidays() {
+        int[] result = cumulativeHolidays;
+        if (null == result) {
+            int years = getYears();
+            result = new int[years + 1];
+            for (int i = 0; i < years; ++i) {
+                int count = 0;
+                for (int word = i * WORDS_PER_YEAR; word < (i + 1) * WORDS_PER_YEAR; ++word) {
+                    count += Long.bitCount(bits[word]);
+                }
+                result[i + 1] = result[i] + count;
+            }
+            cumulativeHolidays = result;
+        }
+        return result;
+    }
+
+    /**
+     * Adjust the number of holidays before the years following the changed one, if it is already built.
+     * @param yearIndex the index of the changed year within the span.
+     * @param delta the change of the number of holidays in the year.
+     */
+    private void patchCumulativeHolidays(int yearIndex, int delta) {
+        int[] cumulative = cumulativeHolidays;
+        if (null == cumulative) {
+            return;
+        }
+        for (int i = yearIndex + 1; i < cumulative.length; ++i) {
+            cumulative[i] += delta;
+        }
+    }
+
+    /**
+     * @return the number of holidays strictly before specified epoch day.
+     */
+    int rank(long epochDay) {
+        int[] cumulative = getCumulativeHolidays();
+        long[] starts = yearStarts;
+        if (0 == starts.length || epochDay <= starts[0]) {
+            return 0;
+        } else if (epochDay >= starts[starts.length - 1]) {
+            return cumulative[cumulative.length - 1];
+        }
+        int yearIndex = getYearIndex(epochDay);
+        int dayOffset = (int) (epochDay - starts[yearIndex]);
+        int word = yearIndex * WORDS_PER_YEAR;
+        int lastWord = word + (dayOffset >>> 6);
+        int result = cumulative[yearIndex];
+        for (; word < lastWord; ++word) {
+            result += Long.bitCount(bits[word]);
+        }
+        return result + Long.bitCount(bits[word] & (1L << dayOffset) - 1);
+    }
+
+    /**
+     * @return approximate number of bytes occupied by the calendar, assuming compressed references,
+     * which does not depend on the number of holidays, but on the number of covered years.
+     */
+    public long getMemoryFootprint() {
+        int[] cumulative = cumulativeHolidays;
+        return OBJECT_SIZE + ARRAY_HEADER_SIZE + 8L * bits.length + ARRAY_HEADER_SIZE + 8L * yearStarts.length
+                + (null == cumulative ? 0 : ARRAY_HEADER_SIZE + 4L * cumulative.length);
+    }
+
+    @Override
+    public Set<DayOfWeek> getWeekendDays() {
+        return weekendMask.toSet();
+    }
+
+    @Override
+    public boolean addHoliday(LocalDate holidayDate) {
+        if (weekendMask.isWeekendDay(holidayDate.toEpochDay())) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Holiday is ignored because it overlaps with non-working day of the week: " + holidayDate);
+            }
+            return false;
+        }
+        int yearIndex = coverYears(holidayDate.getYear(), holidayDate.getYear());
+        long bit = getBitIndex(yearIndex, holidayDate.getDayOfYear());
+        long mask = 1L << bit;
+        if (0 != (bits[(int) (bit >>> 6)] & mask)) {
+            return false;
+        }
+        bits[(int) (bit >>> 6)] |= mask;
+        patchCumulativeHolidays(yearIndex, 1);
+        return true;
+    }
+
+    @Override
+    public boolean removeHoliday(LocalDate holidayDate) {
+        int yearIndex = holidayDate.getYear() - firstYear;
+        if (yearIndex < 0 || yearIndex >= getYears()) {
+            return false;
+        }
+        long bit = getBitIndex(yearIndex, holidayDate.getDayOfYear());
+        long mask = 1L << bit;
+        if (0 == (bits[(int) (bit >>> 6)] & mask)) {
+            return false;
+        }
+        bits[(int) (bit >>> 6)] &= ~mask;
+        patchCumulativeHolidays(yearIndex, -1);
+        return true;
+    }
+
+    @Override
+    public long load(DateReader reader) throws DateReaderException {
+        bits = new long[0];
+        yearStarts = new long[0];
+        cumulativeHolidays = null;
+        return super.load(reader);
+    }
+
+    /**
+     * Replace all holidays with the ones provided by the reader in bulk.
+     * The span of years is allocated once for sorted holidays, then bits are set in one pass.
+     */
+    @Override
+    public long loadAll(DateReader reader) throws DateReaderException {
+        int[] readDays = reader.readEpochDays();
+        int[] days = HolidayIndex.of(readDays, readDays.length, weekendMask).days;
+        int startYear = 0 == days.length ? 0 : LocalDate.ofEpochDay(days[0]).getYear();
+        int endYear = 0 == days.length ? 0 : LocalDate.ofEpochDay(days[days.length - 1]).getYear();
+        // Holidays are kept when the span is rejected.
+        checkYears(startYear, endYear);
+        bits = new long[0];
+        yearStarts = new long[0];
+        cumulativeHolidays = null;
+        if (0 != days.length) {
+            coverYears(startYear, endYear);
+            int yearIndex = 0;
+            for (int day : days) {
+                while (yearStarts[yearIndex + 1] <= day) {
+                    ++yearIndex;
+                }
+                long bit = getBitIndex(yearIndex, (int) (day - yearStarts[yearIndex]) + 1);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+        return days.length;
+    }
+
+    /**
+     * Holidays are extracted from the bits in ascending order and written in bulk.
+     */
+    @Override
+    public long save(DateWriter writer) throws IOException {
+        int[] days = new int[rank(Long.MAX_VALUE)];
+        int length = 0;
+        for (int word = 0; word < bits.length; ++word) {
+            long value = bits[word];
+            long yearStart = yearStarts[word / WORDS_PER_YEAR];
+            int wordStart = word % WORDS_PER_YEAR * WORD_BITS;
+            while (0 != value) {
+                days[length++] = Math.toIntExact(yearStart + wordStart + Long.numberOfTrailingZeros(value));
+                value &= value - 1;
+            }
+        }
+        writer.write(days, 0, length);
+        writer.commit();
+        return length;
+    }
+
+    @Override
+    public long getWorkdays(LocalDate startDate, LocalDate endDate) {
+        long startEpochDay = startDate.toEpochDay();
+        long endEpochDay = endDate.toEpochDay();
+        long rangeDays = endEpochDay - startEpochDay + 1;  // compensate excluded end date.
+        if (0 > rangeDays) {
+            throw new IllegalArgumentException("Start date of the range is after the end date.");
+        }
+        return weekendMask.getWeekdays(startEpochDay, rangeDays) - (rank(endEpochDay + 1) - rank(startEpochDay));
+    }
+
+    @Override
+    public void getWorkdays(int[] startEpochDays, int[] endEpochDays, long[] result) {
+        if (startEpochDays.length != endEpochDays.length || result.length < startEpochDays.length) {
+            throw new IllegalArgumentException("Ranges and result arrays do not match.");
+        }
+        for (int i = 0; i < startEpochDays.length; ++i) {
+            long rangeDays = (long) endEpochDays[i] - startEpochDays[i] + 1;
+            if (0 > rangeDays) {
+                throw new IllegalArgumentException("Start date of the range is after the end date.");
+            }
+            result[i] = weekendMask.getWeekdays(startEpochDays[i], rangeDays) - (rank(endEpochDays[i] + 1L) - rank(startEpochDays[i]));
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.aziubin;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Decorator of Workdays implementation, which caches results of repeated range queries,
+ * intended for skewed traffic, where a few ranges like the current month account for most queries.
+ * The cache is bounded and set-associative: a range packed into a long key is hashed to a set
+ * of a few entries kept in primitive arrays in LRU order, so lookups do not allocate memory.
+ * Sets are guarded by striped locks, so the cache is safe for concurrent use.
+ * Every modification through the decorator advances the generation of the calendar,
+ * which invalidates all cached results at once without clearing the arrays.
+ * Modifications of the delegate bypassing the decorator are not detected.
+ */
+public class CachingWorkdays implements Workdays {
+    private static final int WAYS = 8;
+    private static final int LOCKS = 64;
+
+    /**
+     * Generation of entries, which were never written.
+     */
+    private static final long EMPTY = 0;
+
+    private final Workdays delegate;
+    private final int setMask;
+    private final Object[] locks = new Object[LOCKS];
+
+    /**
+     * Entries of set i occupy indexes from i * WAYS, the most recently used first.
+     */
+    private final long[] keys;
+    private final long[] values;
+    private final long[] generations;
+
+    /**
+     * Current generation of the calendar, advanced after each modification.
+     */
+    private final AtomicLong generation = new AtomicLong(EMPTY + 1);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param delegate the implementation performing actual calculations.
+     * @param capacity the maximum number of cached ranges, rounded up to a power of two.
+     */
+    public CachingWorkdays(Workdays delegate, int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Cache capacity is out of range: " + capacity);
+        }
+        this.delegate = delegate;
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS) * 2 - 1);
+        this.setMask = sets - 1;
+        this.keys = new long[sets * WAYS];
+        this.values = new long[sets * WAYS];
+        this.generations = new long[sets * WAYS];
+        for (int i = 0; i < LOCKS; ++i) {
+            locks[i] = new Object();
+        }
+    }
+
+    public Workdays getDelegate() {
+        return delegate;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of valid cached results replaced by other ranges because of limited capacity.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Drop all cached results, for example, after the delegate is modified directly.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Move the entry to the head of the set, shifting more recently used entries by one.
+     */
+    private void promote(int first, int index, long key, long value, long entryGeneration) {
+        for (int i = index; i > first; --i) {
+            keys[i] = keys[i - 1];
+            values[i] = values[i - 1];
+            generations[i] = generations[i - 1];
+        }
+        keys[first] = key;
+        values[first] = value;
+        generations[first] = entryGeneration;
+    }
+
+    @Override
+    public long getWorkdays(LocalDate startDate, LocalDate endDate) {
+        long startEpochDay = startDate.toEpochDay();
+        long endEpochDay = endDate.toEpochDay();
+        if (startEpochDay > endEpochDay || startEpochDay < Integer.MIN_VALUE || endEpochDay > Integer.MAX_VALUE) {
+            return delegate.getWorkdays(startDate, endDate);
+        }
+        long key = Workdays.packRange((int) startEpochDay, (int) endEpochDay);
+        int hash = hash(key);
+        int first = (hash & setMask) * WAYS;
+        Object lock = locks[hash & setMask & LOCKS - 1];
+        // Read the generation before calculation, so the result calculated concurrently
+        // with a modification is stored as already outdated.
+        long currentGeneration = generation.get();
+        synchronized (lock) {
+            for (int i = first; i < first + WAYS; ++i) {
+                if (keys[i] == key && generations[i] == currentGeneration) {
+                    long result = values[i];
+                    promote(first, i, key, result, currentGeneration);
+                    hits.increment();
+                    return result;
+                }
+            }
+        }
+        misses.increment();
+        long result = delegate.getWorkdays(startDate, endDate);
+        synchronized (lock) {
+            int victim = first + WAYS - 1;
+            for (int i = first; i < first + WAYS; ++i) {
+                if (keys[i] == key || generations[i] != currentGeneration) {
+                    victim = i;
+                    break;
+                }
+            }
+            if (keys[victim] != key && generations[victim] == currentGeneration) {
+                evictions.increment();
+            }
+            promote(first, victim, key, result, currentGeneration);
+        }
+        return result;
+    }
+
+    @Override
+    public void getWorkdays(int[] startEpochDays, int[] endEpochDays, long[] result) {
+        delegate.getWorkdays(startEpochDays, endEpochDays, result);
+    }
+
+    @Override
+    public LocalDate addWorkdays(LocalDate date, long workdays) {
+        return delegate.addWorkdays(date, workdays);
+    }
+
+    @Override
+    public LocalDate subtractWorkdays(LocalDate date, long workdays) {
+        return delegate.subtractWorkdays(date, workdays);
+    }
+
+    @Override
+    public IntStream streamWorkdays(LocalDate startDate, LocalDate endDate) {
+        return delegate.streamWorkdays(startDate, endDate);
+    }
+
+    @Override
+    public Set<DayOfWeek> getWeekendDays() {
+        return delegate.getWeekendDays();
+    }
+
+    @Override
+    public WeekendRule getWeekendRule() {
+        return delegate.getWeekendRule();
+    }
+
+    @Override
+    public boolean addHoliday(LocalDate holidayDate) {
+        boolean result = delegate.addHoliday(holidayDate);
+        if (result) {
+            invalidate();
+        }
+        return result;
+    }
+
+    @Override
+    public boolean removeHoliday(LocalDate holidayDate) {
+        boolean result = delegate.removeHoliday(holidayDate);
+        if (result) {
+            invalidate();
+        }
+        return result;
+    }
+
+    @Override
+    public long applyChanges(DateReader additions, DateReader removals) throws DateReaderException {
+        try {
+            return delegate.applyChanges(additions, removals);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public long load(DateReader reader) throws DateReaderException {
+        try {
+            return delegate.load(reader);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public long loadAll(DateReader reader) throws DateReaderException {
+        try {
+            return delegate.loadAll(reader);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public long save(DateWriter writer) throws IOException {
+        return delegate.save(writer);
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.aziubin;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Thread-safe implementation intended for many concurrent readers and rare modifications.
+ * Holidays are kept in an immutable index, which is read once per query,
+ * so queries are wait-free and always observe a complete calendar.
+ * Modifications build a new index aside and publish it atomically (copy-on-write),
+ * so reload never blocks or corrupts in-flight queries.
+ * Concurrent modifications do not lose updates, but the cost of each single addHoliday
+ * is proportional to the number of holidays, so bulk load is preferable for big changes.
+ */
+public class ConcurrentWorkdays extends AbstractLoadableWorkdays implements Workdays {
+    private static final Logger logger = Logger.getLogger(ConcurrentWorkdays.class.getName());
+
+    /**
+     * Regular non-working days of the week, which are immutable for the instance.
+     */
+    final WeekendMask weekendMask;
+
+    /**
+     * Currently published immutable snapshot of holidays.
+     */
+    final AtomicReference<HolidayIndex> holidays = new AtomicReference<>(HolidayIndex.EMPTY);
+
+    ConcurrentWorkdays() {
+        this(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+    }
+
+    /**
+     * Constructs an instance of ConcurrentWorkdays assuming customized weekend days.
+     * @param weekendSet customized set of weekend days.
+     */
+    ConcurrentWorkdays(Set<DayOfWeek> weekendSet) {
+        this.weekendMask = WeekendMask.of(weekendSet);
+    }
+
+    /**
+     * Constructs an instance of ConcurrentWorkdays sharing already built immutable holidays.
+     * @param weekendMask regular non-working days of the week.
+     * @param holidays holidays, which do not overlap with weekend days.
+     */
+    ConcurrentWorkdays(WeekendMask weekendMask, HolidayIndex holidays) {
+        this.weekendMask = weekendMask;
+        this.holidays.set(holidays);
+    }
+
+    /**
+     * Constructs an instance of ConcurrentWorkdays assuming holiday days
+     * provided by the specified reader and customized weekend days.
+     * @param reader the reader, which provides holiday days.
+     * @param weekendSet customized set of weekend days.
+     */
+    ConcurrentWorkdays(DateReader reader, Set<DayOfWeek> weekendSet) throws DateReaderException {
+        this(weekendSet);
+        load(reader);
+    }
+
+    @Override
+    public IntStream streamWorkdays(LocalDate startDate, LocalDate endDate) {
+        return WorkdaySpliterator.stream(weekendMask, holidays.get(), startDate, endDate);
+    }
+
+    @Override
+    public Set<DayOfWeek> getWeekendDays() {
+        return weekendMask.toSet();
+    }
+
+    @Override
+    public boolean addHoliday(LocalDate holidayDate) {
+        long epochDay = holidayDate.toEpochDay();
+        if (weekendMask.isWeekendDay(epochDay)) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Holiday is ignored because it overlaps with non-working day of the week: " + holidayDate);
+            }
+            return false;
+        }
+        int day = Math.toIntExact(epochDay);
+        HolidayIndex current;
+        HolidayIndex updated;
+        do {
+            current = holidays.get();
+            updated = current.with(day);
+            if (updated == current) {
+                return false;
+            }
+        } while (!holidays.compareAndSet(current, updated));
+        return true;
+    }
+
+    @Override
+    public boolean removeHoliday(LocalDate holidayDate) {
+        int day = Math.toIntExact(holidayDate.toEpochDay());
+        HolidayIndex current;
+        HolidayIndex updated;
+        do {
+            current = holidays.get();
+            updated = current.without(day);
+            if (updated == current) {
+                return false;
+            }
+        } while (!holidays.compareAndSet(current, updated));
+        return true;
+    }
+
+    /**
+     * The whole batch is merged into the current index in a single pass
+     * and published at once, so queries observe either all changes of the batch or none.
+     */
+    @Override
+    public long applyChanges(DateReader additions, DateReader removals) throws DateReaderException {
+        int[] addedDays = additions.readEpochDays();
+        int[] removedDays = removals.readEpochDays();
+        HolidayIndex added = HolidayIndex.of(addedDays, addedDays.length, weekendMask);
+        HolidayIndex removed = HolidayIndex.of(removedDays, removedDays.length, WeekendMask.of(0));
+        HolidayIndex current;
+        HolidayIndex remaining;
+        HolidayIndex updated;
+        do {
+            current = holidays.get();
+            remaining = current.difference(removed);
+            updated = remaining.union(added);
+        } while (!holidays.compareAndSet(current, updated));
+        return current.size() - remaining.size() + updated.size() - remaining.size();
+    }
+
+    /**
+     * Replace all holidays with the ones provided by the reader.
+     * The new index is built without affecting concurrent queries and published at once.
+     */
+    @Override
+    public long load(DateReader reader) throws DateReaderException {
+        return loadAll(reader);
+    }
+
+    @Override
+    public long loadAll(DateReader reader) throws DateReaderException {
+        int[] days = reader.readEpochDays();
+        HolidayIndex index = HolidayIndex.of(days, days.length, weekendMask);
+        holidays.set(index);
+        return index.size();
+    }
+
+    /**
+     * Save the snapshot of holidays, which is current when saving starts.
+     */
+    @Override
+    public long save(DateWriter writer) throws IOException {
+        int[] days = holidays.get().days;
+        writer.write(days, 0, days.length);
+        writer.commit();
+        return days.length;
+    }
+
+    @Override
+    public long getWorkdays(LocalDate startDate, LocalDate endDate) {
+        long startEpochDay = startDate.toEpochDay();
+        long endEpochDay = endDate.toEpochDay();
+        long rangeDays = endEpochDay - startEpochDay + 1;  // compensate excluded end date.
+        if (0 > rangeDays) {
+            throw new IllegalArgumentException("Start date of the range is after the end date.");
+        }
+        return weekendMask.getWeekdays(startEpochDay, rangeDays) - holidays.get().count(startEpochDay, endEpochDay);
+    }
+
+    /**
+     * All ranges are calculated against the same snapshot of holidays.
+     */
+    @Override
+    public void getWorkdays(int[] startEpochDays, int[] endEpochDays, long[] result) {
+        if (startEpochDays.length != endEpochDays.length || result.length < startEpochDays.length) {
+            throw new IllegalArgumentException("Ranges and result arrays do not match.");
+        }
+        HolidayIndex index = holidays.get();
+        for (int i = 0; i < startEpochDays.length; ++i) {
+            long rangeDays = (long) endEpochDays[i] - startEpochDays[i] + 1;
+            if (0 > rangeDays) {
+                throw new IllegalArgumentException("Start date of the range is after the end date.");
+            }
+            result[i] = weekendMask.getWeekdays(startEpochDays[i], rangeDays) - index.count(startEpochDays[i], endEpochDays[i]);
+        }
+    }
+
+    @Override
+    public LocalDate addWorkdays(LocalDate date, long workdays) {
+        return LocalDate.ofEpochDay(holidays.get().addWorkdays(weekendMask, date.toEpochDay(), workdays));
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.aziubin;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 
 /**
  * Interface intended to extend date read functionality,
@@ -8,10 +9,51 @@ import java.time.LocalDate;
  */
 public interface DateReader {
 
+    /**
+     * Value returned by readEpochDay() when date cannot be read anymore.
+     */
+    long NO_DATE = Long.MIN_VALUE;
+
     /**
      * @return subsequent LocalDate instance or null when instance cannot be read anymore. 
      * @throws DateReaderException
      */
     LocalDate read() throws DateReaderException;
 
+    /**
+     * Readers of serialized formats are expected to override this method
+     * to avoid creation of intermediate LocalDate instances.
+     * @return subsequent date as epoch day or NO_DATE when date cannot be read anymore.
+     * @throws DateReaderException
+     */
+    default long readEpochDay() throws DateReaderException {
+        LocalDate date = read();
+        return null == date ? NO_DATE : date.toEpochDay();
+    }
+
+    /**
+     * @return the number of bytes consumed from the underlying source so far,
+     * or zero when the reader is not backed by serialized data.
+     */
+    default long getBytesRead() {
+        return 0;
+    }
+
+    /**
+     * Read all remaining dates at once, which allows bulk loading without per date overhead.
+     * @return the array of epoch days in the order of reading.
+     * @throws DateReaderException
+     */
+    default int[] readEpochDays() throws DateReaderException {
+        int[] result = new int[1024];
+        int length = 0;
+        for (long epochDay = readEpochDay(); NO_DATE != epochDay; epochDay = readEpochDay()) {
+            if (length == result.length) {
+                result = Arrays.copyOf(result, length << 1);
+            }
+            result[length++] = Math.toIntExact(epochDay);
+        }
+        return Arrays.copyOf(result, length);
+    }
+
 }
@@ -15,6 +15,21 @@ interface DateWriter {
      */
     void write(LocalDate date) throws IOException;
 
+    /**
+     * Save a sequence of dates represented as epoch days at once.
+     * Writers of serialized formats are expected to override this method
+     * to avoid creation of intermediate LocalDate instances.
+     * @param epochDays the array of epoch days.
+     * @param offset the index of the first epoch day to write.
+     * @param length the number of epoch days to write.
+     * @throws IOException
+     */
+    default void write(int[] epochDays, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; ++i) {
+            write(LocalDate.ofEpochDay(epochDays[i]));
+        }
+    }
+
     /**
      * Indicate the end of LocalDate sequence,
      * so some customized behavior is possible, depending from underlying media,
@@ -0,0 +1,87 @@
+package com.aziubin;
+
+import java.time.LocalDate;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * Read-only sorted set view over sorted epoch days without duplicates.
+ * Intended to feed a TreeSet, which builds balanced tree from a sorted set
+ * in linear time instead of inserting and rebalancing entries one by one.
+ * Range views are not supported.
+ */
+class EpochDaySortedSet extends AbstractSet<LocalDate> implements SortedSet<LocalDate> {
+    private final int[] days;
+
+    EpochDaySortedSet(int[] days) {
+        this.days = days;
+    }
+
+    @Override
+    public Iterator<LocalDate> iterator() {
+        return new Iterator<LocalDate>() {
+            int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < days.length;
+            }
+
+            @Override
+            public LocalDate next() {
+                if (index >= days.length) {
+                    throw new NoSuchElementException();
+                }
+                return LocalDate.ofEpochDay(days[index++]);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return days.length;
+    }
+
+    /**
+     * @return null as dates are in natural order, which is the same as TreeSet default.
+     */
+    @Override
+    public Comparator<? super LocalDate> comparator() {
+        return null;
+    }
+
+    @Override
+    public SortedSet<LocalDate> subSet(LocalDate fromElement, LocalDate toElement) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedSet<LocalDate> headSet(LocalDate toElement) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedSet<LocalDate> tailSet(LocalDate fromElement) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LocalDate first() {
+        if (0 == days.length) {
+            throw new NoSuchElementException();
+        }
+        return LocalDate.ofEpochDay(days[0]);
+    }
+
+    @Override
+    public LocalDate last() {
+        if (0 == days.length) {
+            throw new NoSuchElementException();
+        }
+        return LocalDate.ofEpochDay(days[days.length - 1]);
+    }
+
+}
@@ -0,0 +1,285 @@
+package com.aziubin;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Implementation optimized for huge volumes of range queries.
+ * Holidays are stored as sorted primitive epoch days, so the number of holidays in a range
+ * is calculated by two binary searches and simple arithmetic without any memory allocation.
+ * Optionally the cumulative number of workdays is precomputed for a configured window of dates,
+ * so queries within the window are answered by two array lookups.
+ */
+public class EpochDayWorkdays extends AbstractLoadableWorkdays implements Workdays {
+    private static final Logger logger = Logger.getLogger(EpochDayWorkdays.class.getName());
+
+    /**
+     * Regular non-working days of the week.
+     */
+    final WeekendMask weekendMask;
+
+    /**
+     * Holidays to assume when calculating the number of working days in a range.
+     */
+    HolidayIndex holidays = HolidayIndex.EMPTY;
+
+    /**
+     * Inclusive bounds of the precomputed window, empty window when end is before start.
+     */
+    final long windowStart;
+    final long windowEnd;
+
+    /**
+     * The number of workdays from windowStart inclusive to windowStart + i exclusive,
+     * lazily rebuilt after holidays modification.
+     */
+    int[] cumulativeWorkdays;
+
+    EpochDayWorkdays() {
+        this(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+    }
+
+    /**
+     * Constructs an instance of EpochDayWorkdays assuming customized weekend days.
+     * @param weekendSet customized set of weekend days.
+     */
+    EpochDayWorkdays(Set<DayOfWeek> weekendSet) {
+        this(weekendSet, LocalDate.MAX, LocalDate.MIN);
+    }
+
+    /**
+     * Constructs an instance of EpochDayWorkdays assuming customized weekend days
+     * and precomputing cumulative number of workdays for specified window.
+     * @param weekendSet customized set of weekend days.
+     * @param windowStart inclusive start date of the precomputed window.
+     * @param windowEnd inclusive end date of the precomputed window.
+     */
+    EpochDayWorkdays(Set<DayOfWeek> weekendSet, LocalDate windowStart, LocalDate windowEnd) {
+        this.weekendMask = WeekendMask.of(weekendSet);
+        this.windowStart = windowStart.toEpochDay();
+        this.windowEnd = windowEnd.toEpochDay();
+        if (this.windowEnd - this.windowStart >= Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("Precomputed window is too large.");
+        }
+    }
+
+    /**
+     * Constructs an instance of EpochDayWorkdays assuming holiday days
+     * provided by the specified reader.
+     * @param reader the reader, which provides holiday days.
+     */
+    EpochDayWorkdays(DateReader reader) throws DateReaderException {
+        this();
+        load(reader);
+    }
+
+    /**
+     * Constructs an instance of EpochDayWorkdays assuming holiday days
+     * provided by the specified reader and customized weekend days.
+     * @param reader the reader, which provides holiday days.
+     * @param weekendSet customized set of weekend days.
+     */
+    EpochDayWorkdays(DateReader reader, Set<DayOfWeek> weekendSet) throws DateReaderException {
+        this(weekendSet);
+        load(reader);
+    }
+
+    @Override
+    public IntStream streamWorkdays(LocalDate startDate, LocalDate endDate) {
+        return WorkdaySpliterator.stream(weekendMask, holidays, startDate, endDate);
+    }
+
+    @Override
+    public Set<DayOfWeek> getWeekendDays() {
+        return weekendMask.toSet();
+    }
+
+    @Override
+    public boolean addHoliday(LocalDate holidayDate) {
+        long epochDay = holidayDate.toEpochDay();
+        if (weekendMask.isWeekendDay(epochDay)) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Holiday is ignored because it overlaps with non-working day of the week: " + holidayDate);
+            }
+            return false;
+        }
+        HolidayIndex updated = holidays.with(Math.toIntExact(epochDay));
+        if (updated == holidays) {
+            return false;
+        }
+        holidays = updated;
+        patchCumulativeWorkdays(HolidayIndex.EMPTY.with((int) epochDay), HolidayIndex.EMPTY);
+        return true;
+    }
+
+    @Override
+    public boolean removeHoliday(LocalDate holidayDate) {
+        int epochDay = Math.toIntExact(holidayDate.toEpochDay());
+        HolidayIndex updated = holidays.without(epochDay);
+        if (updated == holidays) {
+            return false;
+        }
+        holidays = updated;
+        patchCumulativeWorkdays(HolidayIndex.EMPTY, HolidayIndex.EMPTY.with(epochDay));
+        return true;
+    }
+
+    /**
+     * The whole batch is merged into holidays in a single pass, and precomputed cumulative
+     * workdays are patched starting from the first changed day instead of rebuilding.
+     */
+    @Override
+    public long applyChanges(DateReader additions, DateReader removals) throws DateReaderException {
+        int[] addedDays = additions.readEpochDays();
+        int[] removedDays = removals.readEpochDays();
+        HolidayIndex remaining = holidays.difference(HolidayIndex.of(removedDays, removedDays.length, WeekendMask.of(0)));
+        HolidayIndex updated = remaining.union(HolidayIndex.of(addedDays, addedDays.length, weekendMask));
+        // Net changes are patched, so a date removed and added back by the batch does not shift counts.
+        HolidayIndex added = updated.difference(holidays);
+        HolidayIndex removed = holidays.difference(updated);
+        long result = holidays.size() - remaining.size() + updated.size() - remaining.size();
+        holidays = updated;
+        patchCumulativeWorkdays(added, removed);
+        return result;
+    }
+
+    /**
+     * Adjust precomputed cumulative workdays after holidays modification, if they are already built.
+     * @param added holidays, which were not present before.
+     * @param removed holidays, which are not present anymore.
+     */
+    private void patchCumulativeWorkdays(HolidayIndex added, HolidayIndex removed) {
+        int[] cumulative = cumulativeWorkdays;
+        if (null == cumulative) {
+            return;
+        }
+        int addedIdx = added.rank(windowStart);
+        int removedIdx = removed.rank(windowStart);
+        int delta = 0;
+        for (int i = 1; i < cumulative.length; ++i) {
+            long epochDay = windowStart + i - 1;
+            if (addedIdx < added.days.length && added.days[addedIdx] == epochDay) {
+                --delta;
+                ++addedIdx;
+            } else if (removedIdx < removed.days.length && removed.days[removedIdx] == epochDay) {
+                ++delta;
+                ++removedIdx;
+            } else if (0 == delta) {
+                // Skip directly to the first changed day.
+                long nextChange = Math.min(addedIdx < added.days.length ? added.days[addedIdx] : Long.MAX_VALUE,
+                        removedIdx < removed.days.length ? removed.days[removedIdx] : Long.MAX_VALUE);
+                if (nextChange > windowEnd) {
+                    break;
+                }
+                i = (int) (nextChange - windowStart);
+                continue;
+            }
+            cumulative[i] += delta;
+        }
+    }
+
+    /**
+     * Replace all holidays with the ones provided by the reader.
+     * The index is built once for all entries instead of inserting them one by one.
+     */
+    @Override
+    public long load(DateReader reader) throws DateReaderException {
+        return loadAll(reader);
+    }
+
+    @Override
+    public long loadAll(DateReader reader) throws DateReaderException {
+        int[] days = reader.readEpochDays();
+        holidays = HolidayIndex.of(days, days.length, weekendMask);
+        cumulativeWorkdays = null;
+        return holidays.size();
+    }
+
+    @Override
+    public long save(DateWriter writer) throws IOException {
+        int[] days = holidays.days;
+        writer.write(days, 0, days.length);
+        writer.commit();
+        return days.length;
+    }
+
+    /**
+     * @return approximate number of bytes occupied by the calendar, assuming compressed references,
+     * which is an int per holiday and an int per day of the precomputed window, when it is built.
+     */
+    public long getMemoryFootprint() {
+        int[] cumulative = cumulativeWorkdays;
+        return OBJECT_SIZE + ARRAY_HEADER_SIZE + 4L * holidays.size()
+                + (null == cumulative ? 0 : ARRAY_HEADER_SIZE + 4L * cumulative.length);
+    }
+
+    private int[] getCumulativeWorkdays() {
+        int[] result = cumulativeWorkdays;
+        if (null == result) {
+            int windowDays = (int) (windowEnd - windowStart + 1);
+            result = new int[windowDays + 1];
+            int[] days = holidays.days;
+            int holidayIdx = holidays.rank(windowStart);
+            int dayOfWeek = WeekendMask.getDayOfWeek(windowStart);
+            for (int i = 0; i < windowDays; ++i) {
+                long epochDay = windowStart + i;
+                int workday = weekendMask.isWeekend(dayOfWeek) ? 0 : 1;
+                if (holidayIdx < days.length && days[holidayIdx] == epochDay) {
+                    workday = 0;
+                    ++holidayIdx;
+                }
+                result[i + 1] = result[i] + workday;
+                dayOfWeek = WeekendMask.DAYS_IN_WEEK - 1 == dayOfWeek ? 0 : dayOfWeek + 1;
+            }
+            cumulativeWorkdays = result;
+        }
+        return result;
+    }
+
+    /**
+     * @param startDate inclusive start date of the range
+     * @param endDate inclusive end date of the range
+     *
+     * @return the number of working days in a range specified by the startDate inclusive and endDate inclusive.
+     */
+    @Override
+    public long getWorkdays(LocalDate startDate, LocalDate endDate) {
+        long startEpochDay = startDate.toEpochDay();
+        long endEpochDay = endDate.toEpochDay();
+        long rangeDays = endEpochDay - startEpochDay + 1;  // compensate excluded end date.
+        if (0 > rangeDays) {
+            throw new IllegalArgumentException("Start date of the range is after the end date.");
+        }
+        if (startEpochDay >= windowStart && endEpochDay <= windowEnd) {
+            int[] cumulative = getCumulativeWorkdays();
+            return cumulative[(int) (endEpochDay + 1 - windowStart)] - cumulative[(int) (startEpochDay - windowStart)];
+        }
+        return weekendMask.getWeekdays(startEpochDay, rangeDays) - holidays.count(startEpochDay, endEpochDay);
+    }
+
+    @Override
+    public LocalDate addWorkdays(LocalDate date, long workdays) {
+        return LocalDate.ofEpochDay(holidays.addWorkdays(weekendMask, date.toEpochDay(), workdays));
+    }
+
+    @Override
+    public void getWorkdays(int[] startEpochDays, int[] endEpochDays, long[] result) {
+        if (startEpochDays.length != endEpochDays.length || result.length < startEpochDays.length) {
+            throw new IllegalArgumentException("Ranges and result arrays do not match.");
+        }
+        for (int i = 0; i < startEpochDays.length; ++i) {
+            long rangeDays = (long) endEpochDays[i] - startEpochDays[i] + 1;
+            if (0 > rangeDays) {
+                throw new IllegalArgumentException("Start date of the range is after the end date.");
+            }
+            result[i] = weekendMask.getWeekdays(startEpochDays[i], rangeDays) - holidays.count(startEpochDays[i], endEpochDays[i]);
+        }
+    }
+
+}
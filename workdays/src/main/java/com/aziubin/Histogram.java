@@ -0,0 +1,97 @@
+package com.aziubin;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe allocation-free histogram of non-negative values with log-linear buckets,
+ * similar to HdrHistogram: values are grouped by power of two, and each group is split
+ * into 16 linear sub-buckets, so relative error of percentiles is within about 6%.
+ * Recording is a few bit operations and an atomic increment.
+ */
+final class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS - 1;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    private static int getBucket(long value) {
+        if (value < 1 << SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    /**
+     * @return the highest value, which belongs to the bucket.
+     */
+    private static long getBucketValue(int bucket) {
+        if (bucket < 1 << SUB_BUCKET_BITS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKET_HALF - 1;
+        long top = bucket % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return (top + 1 << shift) - 1;
+    }
+
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(getBucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    double getMean() {
+        long currentCount = count.get();
+        return 0 == currentCount ? 0 : (double) sum.get() / currentCount;
+    }
+
+    /**
+     * @param quantile the quantile from 0 to 1, for example 0.99.
+     * @return the value, which is not exceeded by the specified quantile of recorded values.
+     */
+    long getValueAtQuantile(double quantile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            total += counts.get(i);
+        }
+        long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS && 0 != total; ++i) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(getBucketValue(i), max.get());
+            }
+        }
+        return 0;
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+}
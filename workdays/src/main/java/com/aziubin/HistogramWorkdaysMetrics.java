@@ -0,0 +1,162 @@
+package com.aziubin;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Thread-safe metrics collecting histograms of query latency, range length
+ * and the number of holidays per query, as well as load and save throughput.
+ * Recording does not allocate memory, and the instance can be exposed as MXBean.
+ */
+public class HistogramWorkdaysMetrics implements WorkdaysMetrics, WorkdaysMetricsMXBean {
+    private static final String OBJECT_NAME_PREFIX = "com.aziubin:type=WorkdaysMetrics,name=";
+
+    private final Histogram queryLatency = new Histogram();
+    private final Histogram rangeDays = new Histogram();
+    private final Histogram holidaysPerQuery = new Histogram();
+    private final AtomicLong loadedEntries = new AtomicLong();
+    private final AtomicLong loadedBytes = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private final AtomicLong savedEntries = new AtomicLong();
+    private final AtomicLong saveNanos = new AtomicLong();
+
+    /**
+     * Register the instance in platform MBean server.
+     * @param name the name distinguishing calendars, which is a part of MXBean object name.
+     * @return this instance.
+     * @throws JMException when the name is not valid or already registered.
+     */
+    public HistogramWorkdaysMetrics registerMBean(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name)));
+        return this;
+    }
+
+    @Override
+    public void recordQuery(long nanos, long rangeDays, long holidays) {
+        queryLatency.record(nanos);
+        this.rangeDays.record(rangeDays);
+        holidaysPerQuery.record(holidays);
+    }
+
+    @Override
+    public void recordLoad(long entries, long bytes, long nanos) {
+        loadedEntries.addAndGet(entries);
+        loadedBytes.addAndGet(bytes);
+        loadNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void recordSave(long entries, long nanos) {
+        savedEntries.addAndGet(entries);
+        saveNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public long getQueryCount() {
+        return queryLatency.getCount();
+    }
+
+    @Override
+    public double getQueryLatencyMean() {
+        return queryLatency.getMean();
+    }
+
+    @Override
+    public long getQueryLatencyP50() {
+        return queryLatency.getValueAtQuantile(0.5);
+    }
+
+    @Override
+    public long getQueryLatencyP99() {
+        return queryLatency.getValueAtQuantile(0.99);
+    }
+
+    @Override
+    public long getQueryLatencyP999() {
+        return queryLatency.getValueAtQuantile(0.999);
+    }
+
+    @Override
+    public long getQueryLatencyMax() {
+        return queryLatency.getMax();
+    }
+
+    @Override
+    public double getRangeDaysMean() {
+        return rangeDays.getMean();
+    }
+
+    @Override
+    public long getRangeDaysP50() {
+        return rangeDays.getValueAtQuantile(0.5);
+    }
+
+    @Override
+    public long getRangeDaysP99() {
+        return rangeDays.getValueAtQuantile(0.99);
+    }
+
+    @Override
+    public double getHolidaysPerQueryMean() {
+        return holidaysPerQuery.getMean();
+    }
+
+    @Override
+    public long getHolidaysPerQueryP99() {
+        return holidaysPerQuery.getValueAtQuantile(0.99);
+    }
+
+    @Override
+    public long getLoadedEntries() {
+        return loadedEntries.get();
+    }
+
+    @Override
+    public long getLoadedBytes() {
+        return loadedBytes.get();
+    }
+
+    @Override
+    public long getLoadNanos() {
+        return loadNanos.get();
+    }
+
+    @Override
+    public double getLoadThroughput() {
+        long nanos = loadNanos.get();
+        return 0 == nanos ? 0 : (double) loadedEntries.get() * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    @Override
+    public long getSavedEntries() {
+        return savedEntries.get();
+    }
+
+    @Override
+    public long getSaveNanos() {
+        return saveNanos.get();
+    }
+
+    @Override
+    public double getSaveThroughput() {
+        long nanos = saveNanos.get();
+        return 0 == nanos ? 0 : (double) savedEntries.get() * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    @Override
+    public void reset() {
+        queryLatency.reset();
+        rangeDays.reset();
+        holidaysPerQuery.reset();
+        loadedEntries.set(0);
+        loadedBytes.set(0);
+        loadNanos.set(0);
+        savedEntries.set(0);
+        saveNanos.set(0);
+    }
+
+}
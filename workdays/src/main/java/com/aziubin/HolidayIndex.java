@@ -0,0 +1,308 @@
+package com.aziubin;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sorted set of holidays represented as primitive epoch days.
+ * Range counting is implemented as two binary searches over the array,
+ * so it has complexity O(log(n)) and does not allocate any memory.
+ * Epoch days are stored as int values, which covers several million years
+ * around 1970 and is more than enough for any practical calendar.
+ */
+final class HolidayIndex {
+    static final HolidayIndex EMPTY = new HolidayIndex(new int[0]);
+
+    /**
+     * Sorted epoch days without duplicates, never modified after construction.
+     */
+    final int[] days;
+
+    /**
+     * Content based hash code, lazily calculated as the index can be interned.
+     */
+    private int hashCode;
+
+    /**
+     * @param days sorted array without duplicates, which is owned by the instance afterwards.
+     */
+    HolidayIndex(int[] days) {
+        this.days = days;
+    }
+
+    /**
+     * Creates an index from arbitrary ordered epoch days, which can contain duplicates.
+     * Regular weekend days are filtered out, then days are sorted and deduplicated,
+     * so the index is built at once instead of inserting days one by one.
+     * @param days epoch days, the array is reordered in place.
+     * @param length the number of leading array entries to use.
+     * @param weekendRule regular non-working days to filter out.
+     */
+    static HolidayIndex of(int[] days, int length, WeekendRule weekendRule) {
+        int weekdays = 0;
+        for (int i = 0; i < length; ++i) {
+            if (!weekendRule.isWeekendDay(days[i])) {
+                days[weekdays++] = days[i];
+            }
+        }
+        // Sorting is linear for already sorted input, which is typical for saved calendars.
+        Arrays.sort(days, 0, weekdays);
+        int unique = 0;
+        for (int i = 0; i < weekdays; ++i) {
+            if (0 == unique || days[unique - 1] != days[i]) {
+                days[unique++] = days[i];
+            }
+        }
+        return 0 == unique ? EMPTY : new HolidayIndex(unique == days.length ? days : Arrays.copyOf(days, unique));
+    }
+
+    /**
+     * Merge two sorted arrays in a single linear pass, keeping duplicates.
+     * @return new sorted array containing elements of both arrays.
+     */
+    static int[] merge(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int length = 0;
+        while (i < a.length && j < b.length) {
+            result[length++] = a[i] <= b[j] ? a[i++] : b[j++];
+        }
+        System.arraycopy(a, i, result, length, a.length - i);
+        System.arraycopy(b, j, result, length + a.length - i, b.length - j);
+        return result;
+    }
+
+    int size() {
+        return days.length;
+    }
+
+    /**
+     * @return the number of holidays strictly before specified epoch day.
+     */
+    int rank(long epochDay) {
+        if (epochDay > Integer.MAX_VALUE) {
+            return days.length;
+        } else if (epochDay < Integer.MIN_VALUE) {
+            return 0;
+        }
+        int key = (int) epochDay;
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param startEpochDay inclusive start of the range.
+     * @param endEpochDay inclusive end of the range.
+     * @return the number of holidays within the range.
+     */
+    int count(long startEpochDay, long endEpochDay) {
+        if (endEpochDay < startEpochDay) {
+            return 0;
+        }
+        return rank(endEpochDay + 1) - rank(startEpochDay);
+    }
+
+    /**
+     * @param startEpochDay inclusive start of the range.
+     * @param endEpochDay inclusive end of the range.
+     * @return the index containing days within the range, or this instance when all days are within it.
+     */
+    HolidayIndex range(long startEpochDay, long endEpochDay) {
+        int from = rank(startEpochDay);
+        int to = Math.max(from, rank(endEpochDay + 1));
+        if (0 == from && days.length == to) {
+            return this;
+        }
+        return from == to ? EMPTY : new HolidayIndex(Arrays.copyOfRange(days, from, to));
+    }
+
+    boolean contains(int epochDay) {
+        return Arrays.binarySearch(days, epochDay) >= 0;
+    }
+
+    /**
+     * @return new index containing specified epoch day or this instance when the day is already present.
+     */
+    HolidayIndex with(int epochDay) {
+        int position = Arrays.binarySearch(days, epochDay);
+        if (position >= 0) {
+            return this;
+        }
+        position = -position - 1;
+        int[] result = new int[days.length + 1];
+        System.arraycopy(days, 0, result, 0, position);
+        result[position] = epochDay;
+        System.arraycopy(days, position, result, position + 1, days.length - position);
+        return new HolidayIndex(result);
+    }
+
+    /**
+     * Find the day, which is the specified number of workdays after or before the day.
+     * The number of holidays to skip is found by binary search over holidays following the day,
+     * where for each candidate holiday the number of workdays before it is calculated
+     * by whole week arithmetic, so complexity is O(log(n)) irrespective to the number of workdays.
+     * Holidays are expected not to overlap with regular weekend days.
+     * @param weekendMask regular non-working days of the week.
+     * @param epochDay the day from which to start counting, which itself is not counted.
+     * @param workdays the number of workdays to move forward, or backward when negative.
+     * @return epoch day of the resulting workday, or epochDay itself for zero workdays.
+     */
+    long addWorkdays(WeekendMask weekendMask, long epochDay, long workdays) {
+        if (workdays > 0) {
+            int first = rank(epochDay + 1);
+            // The largest number of holidays, which precede the resulting day.
+            int low = 0;
+            int high = days.length - first;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                long holiday = days[first + middle - 1];
+                if (weekendMask.getWeekdays(epochDay + 1, holiday - epochDay) - middle < workdays) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return weekendMask.getNextWeekday(epochDay, workdays + low);
+        } else if (workdays < 0) {
+            workdays = -workdays;
+            int last = rank(epochDay) - 1;
+            int low = 0;
+            int high = last + 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                long holiday = days[last - middle + 1];
+                if (weekendMask.getWeekdays(holiday, epochDay - holiday) - middle < workdays) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return weekendMask.getPreviousWeekday(epochDay, workdays + low);
+        }
+        return epochDay;
+    }
+
+    /**
+     * @return new index without specified epoch day or this instance when the day is not present.
+     */
+    HolidayIndex without(int epochDay) {
+        int position = Arrays.binarySearch(days, epochDay);
+        if (position < 0) {
+            return this;
+        } else if (1 == days.length) {
+            return EMPTY;
+        }
+        int[] result = new int[days.length - 1];
+        System.arraycopy(days, 0, result, 0, position);
+        System.arraycopy(days, position + 1, result, position, days.length - position - 1);
+        return new HolidayIndex(result);
+    }
+
+    /**
+     * Subtract other index in a single linear pass.
+     * @return the index containing days, which are not present in other index, or this instance
+     * when there are no common days.
+     */
+    HolidayIndex difference(HolidayIndex other) {
+        int[] a = days;
+        int[] b = other.days;
+        int[] result = new int[a.length];
+        int j = 0;
+        int length = 0;
+        for (int day : a) {
+            while (j < b.length && b[j] < day) {
+                ++j;
+            }
+            if (j == b.length || b[j] != day) {
+                result[length++] = day;
+            }
+        }
+        if (length == a.length) {
+            return this;
+        }
+        return 0 == length ? EMPTY : new HolidayIndex(Arrays.copyOf(result, length));
+    }
+
+    /**
+     * Merge two indexes in a single linear pass.
+     * @return the index containing days of both indexes, or one of them when the other one adds nothing.
+     */
+    HolidayIndex union(HolidayIndex other) {
+        int[] a = days;
+        int[] b = other.days;
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int length = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[length++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[length++] = b[j++];
+            } else {
+                result[length++] = a[i++];
+                ++j;
+            }
+        }
+        while (i < a.length) {
+            result[length++] = a[i++];
+        }
+        while (j < b.length) {
+            result[length++] = b[j++];
+        }
+        if (length == a.length) {
+            return this;
+        } else if (length == b.length) {
+            return other;
+        }
+        return new HolidayIndex(result.length == length ? result : Arrays.copyOf(result, length));
+    }
+
+    /**
+     * @return the index without regular weekend days, or this instance when there are no such days.
+     */
+    HolidayIndex withoutWeekend(WeekendRule weekendRule) {
+        int length = 0;
+        int[] result = new int[days.length];
+        for (int day : days) {
+            if (!weekendRule.isWeekendDay(day)) {
+                result[length++] = day;
+            }
+        }
+        if (length == days.length) {
+            return this;
+        }
+        return 0 == length ? EMPTY : new HolidayIndex(Arrays.copyOf(result, length));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hashCode;
+        if (0 == result) {
+            result = Arrays.hashCode(days);
+            hashCode = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof HolidayIndex)) {
+            return false;
+        }
+        HolidayIndex other = (HolidayIndex) obj;
+        return days.length == other.days.length && hashCode() == other.hashCode() && Arrays.equals(days, other.days);
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.aziubin;
+
+import java.time.DayOfWeek;
+import java.time.Month;
+
+/**
+ * Recurring holiday, which occurs at most once per year, for example,
+ * a fixed date, the n-th day of the week in a month or a date relative to Easter.
+ * Dates are calculated as epoch days without creation of LocalDate instances.
+ */
+public interface HolidayRule {
+
+    /**
+     * @param year the year of the occurrence.
+     * @return epoch day of the occurrence, which can be in an adjacent year when the date is shifted,
+     * or DateReader.NO_DATE when the holiday does not occur in the year.
+     */
+    long getEpochDay(int year);
+
+    /**
+     * @return the rule shifting occurrences on Saturday and Sunday to the following Monday.
+     */
+    default HolidayRule observedOnMonday() {
+        return year -> {
+            long epochDay = getEpochDay(year);
+            if (DateReader.NO_DATE == epochDay) {
+                return epochDay;
+            }
+            int dayOfWeek = WeekendMask.getDayOfWeek(epochDay);
+            if (DayOfWeek.SATURDAY.ordinal() == dayOfWeek) {
+                return epochDay + 2;
+            } else if (DayOfWeek.SUNDAY.ordinal() == dayOfWeek) {
+                return epochDay + 1;
+            }
+            return epochDay;
+        };
+    }
+
+    /**
+     * @return the holiday on the same date each year, which does not occur when there is no such date,
+     * for example, February 29 in a non-leap year.
+     */
+    static HolidayRule fixed(Month month, int dayOfMonth) {
+        if (dayOfMonth < 1 || dayOfMonth > month.maxLength()) {
+            throw new IllegalArgumentException("Invalid day of month: " + month + " " + dayOfMonth);
+        }
+        return year -> dayOfMonth > month.length(AbstractJsonStreamSupport.isLeapYear(year)) ? DateReader.NO_DATE
+                : AbstractJsonStreamSupport.toEpochDay(year, month.getValue(), dayOfMonth);
+    }
+
+    /**
+     * @param n the number of the day of the week from 1 to 5, or from -1 to -5 counting from the end of the month.
+     * @return the holiday on the n-th day of the week in the month, which does not occur
+     * when the month has less such days.
+     */
+    static HolidayRule nthWeekday(Month month, int n, DayOfWeek dayOfWeek) {
+        if (0 == n || Math.abs(n) > 5) {
+            throw new IllegalArgumentException("Invalid number of the day of the week: " + n);
+        }
+        return year -> {
+            long firstDay = AbstractJsonStreamSupport.toEpochDay(year, month.getValue(), 1);
+            long lastDay = firstDay + month.length(AbstractJsonStreamSupport.isLeapYear(year)) - 1;
+            long result;
+            if (n > 0) {
+                int offset = Math.floorMod(dayOfWeek.ordinal() - WeekendMask.getDayOfWeek(firstDay), WeekendMask.DAYS_IN_WEEK);
+                result = firstDay + offset + (n - 1) * WeekendMask.DAYS_IN_WEEK;
+            } else {
+                int offset = Math.floorMod(WeekendMask.getDayOfWeek(lastDay) - dayOfWeek.ordinal(), WeekendMask.DAYS_IN_WEEK);
+                result = lastDay - offset + (n + 1) * WeekendMask.DAYS_IN_WEEK;
+            }
+            return result < firstDay || result > lastDay ? DateReader.NO_DATE : result;
+        };
+    }
+
+    /**
+     * @param offsetDays the number of days after Easter Sunday, negative for days before it.
+     * @return the holiday relative to Gregorian Easter Sunday.
+     */
+    static HolidayRule easter(int offsetDays) {
+        return year -> getEasterSunday(year) + offsetDays;
+    }
+
+    /**
+     * Floor division and modulo extend the algorithm to non-positive years of proleptic Gregorian calendar.
+     * @return epoch day of Gregorian Easter Sunday calculated by anonymous Gregorian algorithm.
+     */
+    static long getEasterSunday(int year) {
+        int a = Math.floorMod(year, 19);
+        int b = Math.floorDiv(year, 100);
+        int c = Math.floorMod(year, 100);
+        int f = Math.floorDiv(b + 8, 25);
+        int g = Math.floorDiv(b - f + 1, 3);
+        int h = Math.floorMod(19 * a + b - Math.floorDiv(b, 4) - g + 15, 30);
+        int l = (32 + 2 * Math.floorMod(b, 4) + 2 * (c / 4) - h - c % 4) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int monthDay = h + l - 7 * m + 114;
+        return AbstractJsonStreamSupport.toEpochDay(year, monthDay / 31, monthDay % 31 + 1);
+    }
+
+}
@@ -1,12 +1,15 @@
 package com.aziubin;
 
 import java.io.OutputStream;
-import java.io.InputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Demo implementation of Workdays interface to demonstrate local file save and load.
@@ -14,27 +17,47 @@ import java.io.IOException;
  */
 public class LocalFileWorkdays extends TreeSetWorkdays implements Workdays {
 
+    /**
+     * The size of JSON file, starting from which it is parsed on several cores.
+     */
+    static final int PARALLEL_LOAD_THRESHOLD = 4 * ParallelDateReader.DEFAULT_CHUNK_SIZE;
+
     LocalFileWorkdays(String filename) throws DateReaderException, FileNotFoundException, IOException {
         load(filename);
     }
 
     /**
-     * Read holidays from a local JSON file.
+     * Read holidays from a local JSON or binary file, the format is detected by magic number.
+     * The file is memory mapped and dates are parsed straight out of the mapped buffer
+     * into epoch days, which are handed over to the holiday store in bulk.
+     * Large JSON files are parsed in parallel chunks.
      * @param filename
      * @throws FileNotFoundException
      * @throws IOException
      * @throws DateReaderException
      */
     public long load(String filename) throws FileNotFoundException, IOException, DateReaderException {
-        File file = new File(filename);
-        try (InputStream stream = new FileInputStream(file);) {
-            DateReader reader = new StreamDateReader(stream);
-            return load(reader);
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);) {
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            byte[] header = new byte[AbstractBinaryStreamSupport.MAGIC.length];
+            int headerLength = Math.min(header.length, buffer.remaining());
+            buffer.get(header, 0, headerLength);
+            buffer.rewind();
+            DateReader reader;
+            if (AbstractBinaryStreamSupport.isBinaryHeader(header, headerLength)) {
+                reader = new BinaryDateReader(buffer);
+            } else if (buffer.remaining() >= PARALLEL_LOAD_THRESHOLD) {
+                reader = new ParallelDateReader(buffer);
+            } else {
+                reader = new StreamDateReader(buffer);
+            }
+            return loadAll(reader);
         }
     }
 
     /**
-     * Write holidays to a local JSON file.
+     * Write holidays to a local file, which is binary when file name has
+     * the binary extension or JSON otherwise.
      * @param filename
      * @return
      * @throws FileNotFoundException
@@ -43,7 +66,8 @@ public class LocalFileWorkdays extends TreeSetWorkdays implements Workdays {
     public long save(String filename) throws FileNotFoundException, IOException {
         File file = new File(filename);
         try (OutputStream stream = new FileOutputStream(file);) {
-            DateWriter writer = new StreamDateWriter(stream);
+            DateWriter writer = filename.endsWith(AbstractBinaryStreamSupport.BINARY_FILE_EXTENSION)
+                    ? new BinaryDateWriter(stream) : new StreamDateWriter(stream);
             return save(writer);
         }
     }
@@ -0,0 +1,152 @@
+package com.aziubin;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Decorator of Workdays implementation, which records metrics of queries, loads and saves.
+ * When metrics are disabled, calls go straight to the delegate without even reading the clock,
+ * so the overhead is a single final field check.
+ * The number of holidays per query is derived from the result and regular weekend days,
+ * so the delegate is not queried twice.
+ */
+public class MeteredWorkdays implements Workdays {
+    private final Workdays delegate;
+    private final WorkdaysMetrics metrics;
+    private final boolean enabled;
+    private final WeekendRule weekendRule;
+
+    /**
+     * @param delegate the implementation performing actual calculations.
+     * @param metrics the metrics to record, for example, {@link WorkdaysMetrics#NO_OP}.
+     */
+    public MeteredWorkdays(Workdays delegate, WorkdaysMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.enabled = metrics.isEnabled();
+        this.weekendRule = delegate.getWeekendRule();
+    }
+
+    public Workdays getDelegate() {
+        return delegate;
+    }
+
+    public WorkdaysMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public long getWorkdays(LocalDate startDate, LocalDate endDate) {
+        if (!enabled) {
+            return delegate.getWorkdays(startDate, endDate);
+        }
+        long start = System.nanoTime();
+        long result = delegate.getWorkdays(startDate, endDate);
+        long nanos = System.nanoTime() - start;
+        long startEpochDay = startDate.toEpochDay();
+        long rangeDays = endDate.toEpochDay() - startEpochDay + 1;
+        metrics.recordQuery(nanos, rangeDays, weekendRule.getWeekdays(startEpochDay, rangeDays) - result);
+        return result;
+    }
+
+    /**
+     * Each range of the batch is recorded as a separate query with the average latency of the batch.
+     */
+    @Override
+    public void getWorkdays(int[] startEpochDays, int[] endEpochDays, long[] result) {
+        if (!enabled) {
+            delegate.getWorkdays(startEpochDays, endEpochDays, result);
+            return;
+        }
+        long start = System.nanoTime();
+        delegate.getWorkdays(startEpochDays, endEpochDays, result);
+        long nanos = System.nanoTime() - start;
+        if (0 == startEpochDays.length) {
+            return;
+        }
+        long averageNanos = nanos / startEpochDays.length;
+        for (int i = 0; i < startEpochDays.length; ++i) {
+            long rangeDays = (long) endEpochDays[i] - startEpochDays[i] + 1;
+            metrics.recordQuery(averageNanos, rangeDays, weekendRule.getWeekdays(startEpochDays[i], rangeDays) - result[i]);
+        }
+    }
+
+    @Override
+    public LocalDate addWorkdays(LocalDate date, long workdays) {
+        return delegate.addWorkdays(date, workdays);
+    }
+
+    @Override
+    public LocalDate subtractWorkdays(LocalDate date, long workdays) {
+        return delegate.subtractWorkdays(date, workdays);
+    }
+
+    @Override
+    public IntStream streamWorkdays(LocalDate startDate, LocalDate endDate) {
+        return delegate.streamWorkdays(startDate, endDate);
+    }
+
+    @Override
+    public Set<DayOfWeek> getWeekendDays() {
+        return delegate.getWeekendDays();
+    }
+
+    @Override
+    public WeekendRule getWeekendRule() {
+        return delegate.getWeekendRule();
+    }
+
+    @Override
+    public boolean addHoliday(LocalDate holidayDate) {
+        return delegate.addHoliday(holidayDate);
+    }
+
+    @Override
+    public boolean removeHoliday(LocalDate holidayDate) {
+        return delegate.removeHoliday(holidayDate);
+    }
+
+    @Override
+    public long applyChanges(DateReader additions, DateReader removals) throws DateReaderException {
+        return delegate.applyChanges(additions, removals);
+    }
+
+    @Override
+    public long load(DateReader reader) throws DateReaderException {
+        if (!enabled) {
+            return delegate.load(reader);
+        }
+        long bytes = reader.getBytesRead();
+        long start = System.nanoTime();
+        long result = delegate.load(reader);
+        metrics.recordLoad(result, reader.getBytesRead() - bytes, System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public long loadAll(DateReader reader) throws DateReaderException {
+        if (!enabled) {
+            return delegate.loadAll(reader);
+        }
+        long bytes = reader.getBytesRead();
+        long start = System.nanoTime();
+        long result = delegate.loadAll(reader);
+        metrics.recordLoad(result, reader.getBytesRead() - bytes, System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public long save(DateWriter writer) throws IOException {
+        if (!enabled) {
+            return delegate.save(writer);
+        }
+        long start = System.nanoTime();
+        long result = delegate.save(writer);
+        metrics.recordSave(result, System.nanoTime() - start);
+        return result;
+    }
+
+}
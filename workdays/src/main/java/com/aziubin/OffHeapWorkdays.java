@@ -0,0 +1,290 @@
+package com.aziubin;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import sun.misc.Unsafe;
+
+/**
+ * Implementation keeping holidays outside of the Java heap, intended for processes
+ * holding calendars of thousands of tenants, where long-lived holiday objects
+ * would make old generation garbage collection pauses longer.
+ * Sorted epoch days are stored in native memory, and range counts are answered
+ * by binary search directly over the memory, so the heap holds only a few objects per calendar
+ * irrespective to the number of holidays.
+ * Native memory is allocated and released explicitly, so growth and close() return memory
+ * to the system right away instead of waiting for garbage collection of direct buffers,
+ * and it does not count against -XX:MaxDirectMemorySize.
+ * The calendar must be closed, after which any method throws IllegalStateException.
+ */
+public class OffHeapWorkdays extends AbstractLoadableWorkdays implements Workdays, AutoCloseable {
+    private static final Logger logger = Logger.getLogger(OffHeapWorkdays.class.getName());
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The number of days copied through the heap at once when saving.
+     */
+    private static final int SAVE_CHUNK_SIZE = 4096;
+
+    private static final Unsafe UNSAFE;
+
+    static {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (Unsafe) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * The number of bytes of native memory reserved by all open calendars.
+     */
+    private static final AtomicLong totalOffHeapBytes = new AtomicLong();
+
+    /**
+     * Regular non-working days of the week.
+     */
+    final WeekendMask weekendMask;
+
+    /**
+     * Address of sorted epoch days of holidays without duplicates in leading size entries,
+     * or zero when the calendar is closed.
+     */
+    long address;
+    int capacity;
+    int size;
+
+    OffHeapWorkdays() {
+        this(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+    }
+
+    /**
+     * Constructs an instance of OffHeapWorkdays assuming customized weekend days.
+     * @param weekendSet customized set of weekend days.
+     */
+    public OffHeapWorkdays(Set<DayOfWeek> weekendSet) {
+        this.weekendMask = WeekendMask.of(weekendSet);
+        this.address = allocate(INITIAL_CAPACITY);
+        this.capacity = INITIAL_CAPACITY;
+    }
+
+    /**
+     * Constructs an instance of OffHeapWorkdays assuming holiday days
+     * provided by the specified reader and customized weekend days.
+     * @param reader the reader, which provides holiday days.
+     * @param weekendSet customized set of weekend days.
+     */
+    public OffHeapWorkdays(DateReader reader, Set<DayOfWeek> weekendSet) throws DateReaderException {
+        this(weekendSet);
+        load(reader);
+    }
+
+    private static long allocate(int capacity) {
+        long bytes = (long) capacity * Integer.BYTES;
+        long result = UNSAFE.allocateMemory(bytes);
+        totalOffHeapBytes.addAndGet(bytes);
+        return result;
+    }
+
+    private static void free(long address, int capacity) {
+        UNSAFE.freeMemory(address);
+        totalOffHeapBytes.addAndGet(-(long) capacity * Integer.BYTES);
+    }
+
+    /**
+     * @return the address of holidays, which is available until the calendar is closed.
+     */
+    private long getAddress() {
+        long result = address;
+        if (0 == result) {
+            throw new IllegalStateException("Calendar is closed.");
+        }
+        return result;
+    }
+
+    private static int get(long address, int index) {
+        return UNSAFE.getInt(address + (long) index * Integer.BYTES);
+    }
+
+    private static void put(long address, int index, int day) {
+        UNSAFE.putInt(address + (long) index * Integer.BYTES, day);
+    }
+
+    /**
+     * @return the number of holidays strictly before specified epoch day.
+     */
+    private static int rank(long address, int size, long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (get(address, middle) < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the number of bytes of native memory reserved for holidays.
+     */
+    public long getOffHeapBytes() {
+        getAddress();
+        return (long) Integer.BYTES * capacity;
+    }
+
+    /**
+     * @return the number of bytes of native memory reserved by all calendars, which are not closed yet.
+     */
+    public static long getTotalOffHeapBytes() {
+        return totalOffHeapBytes.get();
+    }
+
+    /**
+     * Release native memory, repeated calls have no effect.
+     */
+    @Override
+    public void close() {
+        if (0 != address) {
+            free(address, capacity);
+        }
+        address = 0;
+        capacity = 0;
+        size = 0;
+    }
+
+    @Override
+    public Set<DayOfWeek> getWeekendDays() {
+        getAddress();
+        return weekendMask.toSet();
+    }
+
+    @Override
+    public boolean addHoliday(LocalDate holidayDate) {
+        long memory = getAddress();
+        long epochDay = holidayDate.toEpochDay();
+        if (weekendMask.isWeekendDay(epochDay)) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Holiday is ignored because it overlaps with non-working day of the week: " + holidayDate);
+            }
+            return false;
+        }
+        int day = Math.toIntExact(epochDay);
+        int position = rank(memory, size, day);
+        if (position < size && get(memory, position) == day) {
+            return false;
+        }
+        if (size == capacity) {
+            // Reallocation releases the previous memory, when it cannot be extended in place.
+            int grownCapacity = Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+            memory = UNSAFE.reallocateMemory(memory, (long) grownCapacity * Integer.BYTES);
+            totalOffHeapBytes.addAndGet((long) (grownCapacity - capacity) * Integer.BYTES);
+            address = memory;
+            capacity = grownCapacity;
+        }
+        for (int i = size; i > position; --i) {
+            put(memory, i, get(memory, i - 1));
+        }
+        put(memory, position, day);
+        ++size;
+        return true;
+    }
+
+    @Override
+    public boolean removeHoliday(LocalDate holidayDate) {
+        long memory = getAddress();
+        long epochDay = holidayDate.toEpochDay();
+        int position = rank(memory, size, epochDay);
+        if (position == size || get(memory, position) != epochDay) {
+            return false;
+        }
+        --size;
+        for (int i = position; i < size; ++i) {
+            put(memory, i, get(memory, i + 1));
+        }
+        return true;
+    }
+
+    @Override
+    public long load(DateReader reader) throws DateReaderException {
+        return loadAll(reader);
+    }
+
+    /**
+     * Replace all holidays with the ones provided by the reader.
+     * The index is built on the heap once, then copied into native memory of exact size,
+     * so the heap array becomes garbage right away instead of living as long as the calendar,
+     * and the previous memory is released.
+     */
+    @Override
+    public long loadAll(DateReader reader) throws DateReaderException {
+        getAddress();
+        int[] readDays = reader.readEpochDays();
+        int[] index = HolidayIndex.of(readDays, readDays.length, weekendMask).days;
+        int newCapacity = Math.max(INITIAL_CAPACITY, index.length);
+        long memory = allocate(newCapacity);
+        UNSAFE.copyMemory(index, Unsafe.ARRAY_INT_BASE_OFFSET, null, memory, (long) index.length * Integer.BYTES);
+        free(address, capacity);
+        address = memory;
+        capacity = newCapacity;
+        size = index.length;
+        return size;
+    }
+
+    /**
+     * Holidays are copied from native memory in chunks and written in bulk.
+     */
+    @Override
+    public long save(DateWriter writer) throws IOException {
+        long memory = getAddress();
+        int[] chunk = new int[Math.min(SAVE_CHUNK_SIZE, size)];
+        for (int position = 0; position < size; position += chunk.length) {
+            int length = Math.min(chunk.length, size - position);
+            UNSAFE.copyMemory(null, memory + (long) position * Integer.BYTES, chunk, Unsafe.ARRAY_INT_BASE_OFFSET, (long) length * Integer.BYTES);
+            writer.write(chunk, 0, length);
+        }
+        writer.commit();
+        return size;
+    }
+
+    @Override
+    public long getWorkdays(LocalDate startDate, LocalDate endDate) {
+        long memory = getAddress();
+        long startEpochDay = startDate.toEpochDay();
+        long endEpochDay = endDate.toEpochDay();
+        long rangeDays = endEpochDay - startEpochDay + 1;  // compensate excluded end date.
+        if (0 > rangeDays) {
+            throw new IllegalArgumentException("Start date of the range is after the end date.");
+        }
+        return weekendMask.getWeekdays(startEpochDay, rangeDays)
+                - (rank(memory, size, endEpochDay + 1) - rank(memory, size, startEpochDay));
+    }
+
+    @Override
+    public void getWorkdays(int[] startEpochDays, int[] endEpochDays, long[] result) {
+        long memory = getAddress();
+        if (startEpochDays.length != endEpochDays.length || result.length < startEpochDays.length) {
+            throw new IllegalArgumentException("Ranges and result arrays do not match.");
+        }
+        for (int i = 0; i < startEpochDays.length; ++i) {
+            long rangeDays = (long) endEpochDays[i] - startEpochDays[i] + 1;
+            if (0 > rangeDays) {
+                throw new IllegalArgumentException("Start date of the range is after the end date.");
+            }
+            result[i] = weekendMask.getWeekdays(startEpochDays[i], rangeDays)
+                    - (rank(memory, size, endEpochDays[i] + 1L) - rank(memory, size, startEpochDays[i]));
+        }
+    }
+
+}
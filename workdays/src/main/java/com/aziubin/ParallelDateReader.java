@@ -0,0 +1,199 @@
+package com.aziubin;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Implementation of DateReader interface, which parses JSON array written by StreamDateWriter
+ * on several cores at once, intended for bulk loading of large memory mapped files.
+ * The buffer is split into chunks at entry separators, each chunk is parsed on a fork-join pool
+ * into a sorted run of epoch days, and the runs are merged pairwise while joining the tasks.
+ * Dates are delivered in ascending order rather than in the order of the array,
+ * duplicates and regular weekend days are kept, so the holiday store filters them
+ * exactly as for sequential reading.
+ */
+class ParallelDateReader extends AbstractJsonStreamSupport implements DateReader {
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final ByteBuffer buffer;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * All epoch days of the array in ascending order, parsed on the first read.
+     */
+    private int[] days;
+    private int position;
+
+    /**
+     * Sorted epoch days parsed from adjacent chunks.
+     */
+    private static final class Run {
+        final int[] days;
+
+        /**
+         * True when the end of JSON array is reached within the run,
+         * so subsequent chunks are not a part of the array.
+         */
+        final boolean isArrayEnd;
+
+        /**
+         * The error of parsing the first malformed chunk of the run or null.
+         * Errors are carried as a value instead of being thrown, so an error in chunks
+         * after the end of JSON array is ignored as it is for sequential reading.
+         */
+        final Exception error;
+
+        Run(int[] days, boolean isArrayEnd, Exception error) {
+            this.days = days;
+            this.isArrayEnd = isArrayEnd;
+            this.error = error;
+        }
+    }
+
+    private final class ChunkTask extends RecursiveTask<Run> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] boundaries;
+        private final int first;
+        private final int last;
+
+        /**
+         * @param boundaries start positions of chunks followed by the end of the buffer.
+         * @param first index of the first chunk.
+         * @param last index of the chunk after the last one.
+         */
+        ChunkTask(int[] boundaries, int first, int last) {
+            this.boundaries = boundaries;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected Run compute() {
+            if (1 == last - first) {
+                return parse(first);
+            }
+            int middle = (first + last) >>> 1;
+            ChunkTask left = new ChunkTask(boundaries, first, middle);
+            left.fork();
+            Run right = new ChunkTask(boundaries, middle, last).compute();
+            Run leftRun = left.join();
+            if (leftRun.isArrayEnd || null != leftRun.error) {
+                return leftRun;
+            } else if (null != right.error) {
+                return right;
+            }
+            return new Run(HolidayIndex.merge(leftRun.days, right.days), right.isArrayEnd, null);
+        }
+
+        private Run parse(int chunk) {
+            ByteBuffer fragment = buffer.duplicate();
+            fragment.limit(boundaries[chunk + 1]);
+            fragment.position(boundaries[chunk]);
+            StreamDateReader reader = new StreamDateReader(fragment, 0 == chunk);
+            try {
+                int[] result = reader.readEpochDays();
+                Arrays.sort(result);
+                return new Run(result, reader.isArrayEnd, null);
+            } catch (DateReaderException | RuntimeException e) {
+                return new Run(null, false, e);
+            }
+        }
+    }
+
+    /**
+     * Constructs the reader of JSON array contained in the remaining bytes of the buffer,
+     * which is parsed on the common fork-join pool.
+     * @param buffer the buffer, which position is not modified.
+     */
+    ParallelDateReader(ByteBuffer buffer) {
+        this(buffer, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param buffer the buffer, which position is not modified.
+     * @param pool the pool to parse chunks on.
+     * @param chunkSize approximate number of bytes to parse in a single task.
+     */
+    ParallelDateReader(ByteBuffer buffer, ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        this.buffer = buffer;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return start positions of chunks, each one following entry separator,
+     * and the end of the buffer as the last element.
+     */
+    private int[] split() {
+        int start = buffer.position();
+        int end = buffer.limit();
+        int[] boundaries = new int[(end - start) / chunkSize + 2];
+        int length = 0;
+        boundaries[length++] = start;
+        for (int position = start + chunkSize; position < end; position += chunkSize) {
+            while (position < end && JSON_SEPARATOR != buffer.get(position)) {
+                ++position;
+            }
+            if (position < end) {
+                boundaries[length++] = ++position;
+            }
+        }
+        boundaries[length++] = end;
+        return Arrays.copyOf(boundaries, length);
+    }
+
+    private int[] getDays() throws DateReaderException {
+        if (null == days) {
+            int[] boundaries = split();
+            Run run = pool.invoke(new ChunkTask(boundaries, 0, boundaries.length - 1));
+            if (run.error instanceof DateReaderException) {
+                throw (DateReaderException) run.error;
+            } else if (null != run.error) {
+                throw (RuntimeException) run.error;
+            } else if (!run.isArrayEnd) {
+                throw new DateReaderException("Missing end of JSON array.");
+            }
+            days = run.days;
+        }
+        return days;
+    }
+
+    @Override
+    public long readEpochDay() throws DateReaderException {
+        int[] result = getDays();
+        return position < result.length ? result[position++] : NO_DATE;
+    }
+
+    @Override
+    public LocalDate read() throws DateReaderException {
+        long epochDay = readEpochDay();
+        return NO_DATE == epochDay ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Return the remaining dates without copying, when all of them are requested at once.
+     */
+    @Override
+    public int[] readEpochDays() throws DateReaderException {
+        int[] result = getDays();
+        if (0 != position) {
+            result = Arrays.copyOfRange(result, position, result.length);
+        }
+        position = days.length;
+        return result;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return null == days ? 0 : buffer.remaining();
+    }
+
+}
@@ -32,7 +32,9 @@ class RandomDateReader implements DateReader {
             try {
                 return getRandomDate(random);
             } catch (DateTimeException e) {
-                logger.log(Level.FINE, "Random data can not be used to create a correct date.");
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, "Random data can not be used to create a correct date.");
+                }
             }
         }
         throw new DateReaderException("Predefined number of generation attempts exceeded.");
@@ -0,0 +1,310 @@
+package com.aziubin;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Implementation generating holidays from recurring rules instead of loading each date,
+ * so a calendar of any span of years is defined by a few rules.
+ * Rules are expanded lazily into a holiday index per year on the first query touching the year,
+ * and indexes of recently used years are cached with least recently used eviction,
+ * so a query pays only for the years it touches.
+ * The number of holidays of each expanded year is kept without eviction, so years in the middle
+ * of ranges longer than the cache are counted without expanding them again.
+ * Rules shifting dates, for example, observed on Monday, are expanded for adjacent years as well,
+ * so an occurrence shifted into the next year is counted there.
+ * Explicitly added and removed holidays override the rules.
+ * The cache is modified even by queries, so the instance is not thread-safe.
+ */
+public class RuleBasedWorkdays extends AbstractLoadableWorkdays implements Workdays {
+    private static final Logger logger = Logger.getLogger(RuleBasedWorkdays.class.getName());
+    static final int DEFAULT_CACHED_YEARS = 64;
+
+    /**
+     * Regular non-working days of the week.
+     */
+    final WeekendMask weekendMask;
+
+    final HolidayRule[] rules;
+
+    /**
+     * Holidays added and removed explicitly, which override the rules.
+     */
+    HolidayIndex added = HolidayIndex.EMPTY;
+    HolidayIndex removed = HolidayIndex.EMPTY;
+
+    /**
+     * Holidays of recently used years in access order.
+     */
+    final Map<Integer, HolidayIndex> years;
+
+    /**
+     * The number of holidays of each expanded year, which is an int per year and is never evicted.
+     */
+    final Map<Integer, Integer> yearHolidays = new HashMap<>();
+
+    /**
+     * The number of years expanded from the rules.
+     */
+    long expandedYears;
+
+    /**
+     * Years saved by save(DateWriter), which are not set when the first year is after the last one.
+     */
+    int savedStartYear = 1;
+    int savedEndYear = 0;
+
+    /**
+     * Constructs an instance of RuleBasedWorkdays caching the default number of years.
+     * @param weekendSet customized set of weekend days.
+     * @param rules recurring holidays.
+     */
+    public RuleBasedWorkdays(Set<DayOfWeek> weekendSet, List<HolidayRule> rules) {
+        this(weekendSet, rules, DEFAULT_CACHED_YEARS);
+    }
+
+    /**
+     * @param weekendSet customized set of weekend days.
+     * @param rules recurring holidays.
+     * @param cachedYears the number of years, which holidays are kept after expansion.
+     */
+    public RuleBasedWorkdays(Set<DayOfWeek> weekendSet, List<HolidayRule> rules, int cachedYears) {
+        if (cachedYears < 1) {
+            throw new IllegalArgumentException("At least one year must be cached.");
+        }
+        this.weekendMask = WeekendMask.of(weekendSet);
+        this.rules = rules.toArray(new HolidayRule[0]);
+        this.years = new LinkedHashMap<Integer, HolidayIndex>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, HolidayIndex> eldest) {
+                return size() > cachedYears;
+            }
+        };
+    }
+
+    private static long getYearStart(int year) {
+        return AbstractJsonStreamSupport.toEpochDay(year, 1, 1);
+    }
+
+    /**
+     * @return holidays of the year, which are expanded from the rules when the year is not cached.
+     */
+    HolidayIndex getHolidays(int year) {
+        HolidayIndex result = years.get(year);
+        if (null == result) {
+            result = expand(year);
+            years.put(year, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of holidays of the year, which is not cached when the year is expanded for it.
+     */
+    private int getHolidayCount(int year) {
+        Integer result = yearHolidays.get(year);
+        return null == result ? expand(year).size() : result;
+    }
+
+    /**
+     * Expand holidays of the year from the rules, remembering the number of them.
+     */
+    private HolidayIndex expand(int year) {
+        long yearStart = getYearStart(year);
+        long yearEnd = getYearStart(year + 1) - 1;
+        int[] days = new int[rules.length * 3];
+        int length = 0;
+        for (HolidayRule rule : rules) {
+            for (int ruleYear = year - 1; ruleYear <= year + 1; ++ruleYear) {
+                long epochDay = rule.getEpochDay(ruleYear);
+                if (epochDay >= yearStart && epochDay <= yearEnd) {
+                    days[length++] = (int) epochDay;
+                }
+            }
+        }
+        HolidayIndex result = HolidayIndex.of(days, length, weekendMask)
+                .difference(removed.range(yearStart, yearEnd))
+                .union(added.range(yearStart, yearEnd));
+        yearHolidays.put(year, result.size());
+        ++expandedYears;
+        return result;
+    }
+
+    /**
+     * @return holidays of the years, which are concatenated as they do not overlap.
+     */
+    private HolidayIndex getHolidays(int startYear, int endYear) {
+        if (startYear == endYear) {
+            return getHolidays(startYear);
+        }
+        HolidayIndex[] indexes = new HolidayIndex[endYear - startYear + 1];
+        int length = 0;
+        for (int i = 0; i < indexes.length; ++i) {
+            indexes[i] = getHolidays(startYear + i);
+            length += indexes[i].size();
+        }
+        int[] result = new int[length];
+        length = 0;
+        for (HolidayIndex index : indexes) {
+            System.arraycopy(index.days, 0, result, length, index.size());
+            length += index.size();
+        }
+        return 0 == length ? HolidayIndex.EMPTY : new HolidayIndex(result);
+    }
+
+    @Override
+    public long getWorkdays(LocalDate startDate, LocalDate endDate) {
+        long startEpochDay = startDate.toEpochDay();
+        long endEpochDay = endDate.toEpochDay();
+        long rangeDays = endEpochDay - startEpochDay + 1;  // compensate excluded end date.
+        if (0 > rangeDays) {
+            throw new IllegalArgumentException("Start date of the range is after the end date.");
+        }
+        int startYear = startDate.getYear();
+        int endYear = endDate.getYear();
+        long holidays;
+        if (startYear == endYear) {
+            holidays = getHolidays(startYear).count(startEpochDay, endEpochDay);
+        } else {
+            holidays = getHolidays(startYear).count(startEpochDay, endEpochDay)
+                    + getHolidays(endYear).count(startEpochDay, endEpochDay);
+            for (int year = startYear + 1; year < endYear; ++year) {
+                holidays += getHolidayCount(year);
+            }
+        }
+        return weekendMask.getWeekdays(startEpochDay, rangeDays) - holidays;
+    }
+
+    @Override
+    public IntStream streamWorkdays(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date of the range is after the end date.");
+        }
+        HolidayIndex holidays = getHolidays(startDate.getYear(), endDate.getYear());
+        return WorkdaySpliterator.stream(weekendMask, holidays, startDate, endDate);
+    }
+
+    @Override
+    public Set<DayOfWeek> getWeekendDays() {
+        return weekendMask.toSet();
+    }
+
+    @Override
+    public boolean addHoliday(LocalDate holidayDate) {
+        long epochDay = holidayDate.toEpochDay();
+        if (weekendMask.isWeekendDay(epochDay)) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Holiday is ignored because it overlaps with non-working day of the week: " + holidayDate);
+            }
+            return false;
+        }
+        int day = Math.toIntExact(epochDay);
+        if (getHolidays(holidayDate.getYear()).contains(day)) {
+            return false;
+        }
+        added = added.with(day);
+        removed = removed.without(day);
+        years.remove(holidayDate.getYear());
+        yearHolidays.computeIfPresent(holidayDate.getYear(), (year, count) -> count + 1);
+        return true;
+    }
+
+    @Override
+    public boolean removeHoliday(LocalDate holidayDate) {
+        int day = Math.toIntExact(holidayDate.toEpochDay());
+        if (!getHolidays(holidayDate.getYear()).contains(day)) {
+            return false;
+        }
+        removed = removed.with(day);
+        added = added.without(day);
+        years.remove(holidayDate.getYear());
+        yearHolidays.computeIfPresent(holidayDate.getYear(), (year, count) -> count - 1);
+        return true;
+    }
+
+    /**
+     * Set the years saved by save(DateWriter), as the rules generate holidays for any year,
+     * so consumers of saved holidays, for example, snapshots or set operations, get all holidays of the years.
+     * Explicitly added holidays are saved even when they are outside of the years.
+     * @param startYear the first year to save.
+     * @param endYear the last year to save.
+     */
+    public void setSavedYears(int startYear, int endYear) {
+        if (startYear > endYear) {
+            throw new IllegalArgumentException("Start year is after the end year.");
+        }
+        savedStartYear = startYear;
+        savedEndYear = endYear;
+    }
+
+    /**
+     * Replace explicitly added holidays with the ones provided by the reader, the rules stay in effect.
+     */
+    @Override
+    public long load(DateReader reader) throws DateReaderException {
+        return loadAll(reader);
+    }
+
+    @Override
+    public long loadAll(DateReader reader) throws DateReaderException {
+        int[] days = reader.readEpochDays();
+        added = HolidayIndex.of(days, days.length, weekendMask);
+        removed = HolidayIndex.EMPTY;
+        years.clear();
+        yearHolidays.clear();
+        return added.size();
+    }
+
+    /**
+     * Save all holidays of the years set by setSavedYears() and of the years of explicitly added holidays.
+     * @throws IllegalStateException when the calendar has rules, but the years are not set,
+     * because holidays generated for the rest of years would be lost.
+     */
+    @Override
+    public long save(DateWriter writer) throws IOException {
+        int startYear = savedStartYear;
+        int endYear = savedEndYear;
+        if (startYear > endYear && 0 != rules.length) {
+            throw new IllegalStateException("Years to save are not set.");
+        }
+        if (0 != added.size()) {
+            int firstAddedYear = LocalDate.ofEpochDay(added.days[0]).getYear();
+            int lastAddedYear = LocalDate.ofEpochDay(added.days[added.size() - 1]).getYear();
+            boolean isSet = startYear <= endYear;
+            startYear = isSet ? Math.min(startYear, firstAddedYear) : firstAddedYear;
+            endYear = isSet ? Math.max(endYear, lastAddedYear) : lastAddedYear;
+        }
+        return save(startYear, endYear, writer);
+    }
+
+    /**
+     * Save all holidays of the years including the ones generated by the rules,
+     * so the calendar can be loaded explicitly by other implementations.
+     * @param startYear the first year to save.
+     * @param endYear the last year to save.
+     * @param writer the writer, which is committed afterwards.
+     * @return the number of saved holidays.
+     */
+    public long save(int startYear, int endYear, DateWriter writer) throws IOException {
+        long result = 0;
+        for (int year = startYear; year <= endYear; ++year) {
+            int[] days = getHolidays(year).days;
+            writer.write(days, 0, days.length);
+            result += days.length;
+        }
+        writer.commit();
+        return result;
+    }
+
+}
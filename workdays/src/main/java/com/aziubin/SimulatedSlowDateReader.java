@@ -0,0 +1,52 @@
+package com.aziubin;
+
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous date reader implementation, which simulates a remote source
+ * delivering sequence of dates in specified range in batches with a fixed latency,
+ * for testing purposes. Latency is simulated by the scheduler, so no thread is blocked.
+ */
+class SimulatedSlowDateReader implements AsyncDateReader {
+    long epochDay;
+    long finishEpochDay;
+    int batchSize;
+    long latencyMillis;
+    ScheduledExecutorService scheduler;
+
+    /**
+     * The number of requested batches, which are not delivered yet.
+     */
+    final AtomicInteger inFlight = new AtomicInteger();
+    volatile int maxInFlight;
+
+    SimulatedSlowDateReader(LocalDate startDate, LocalDate finishDate, int batchSize, long latencyMillis,
+            ScheduledExecutorService scheduler) {
+        this.epochDay = startDate.toEpochDay();
+        this.finishEpochDay = finishDate.toEpochDay();
+        this.batchSize = batchSize;
+        this.latencyMillis = latencyMillis;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public CompletableFuture<int[]> readBatchAsync() {
+        int length = (int) Math.max(0, Math.min(batchSize, finishEpochDay - epochDay + 1));
+        int[] batch = new int[length];
+        for (int i = 0; i < length; ++i) {
+            batch[i] = Math.toIntExact(epochDay++);
+        }
+        maxInFlight = Math.max(maxInFlight, inFlight.incrementAndGet());
+        CompletableFuture<int[]> result = new CompletableFuture<>();
+        scheduler.schedule(() -> {
+            inFlight.decrementAndGet();
+            result.complete(batch);
+        }, latencyMillis, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+}
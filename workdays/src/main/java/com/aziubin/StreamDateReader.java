@@ -1,59 +1,210 @@
 package com.aziubin;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
-import java.util.Scanner;
 
 /**
  * Minimalistic implementation of DateReader interface,
  * which expects JSON array in underlying stream.
+ * Input is scanned byte by byte from a reusable chunk, and yyyy-MM-dd digits
+ * are decoded directly into year, month and day numbers, so neither regular expressions
+ * nor intermediate strings are involved.
  * Edge cases or error processing is not covered for the sake of simplicity.
  */
 class StreamDateReader extends AbstractJsonStreamSupport implements DateReader {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int END_OF_INPUT = -1;
+
     boolean isBof = true;
     boolean isEof = false;
-    Scanner scanner;
+
+    /**
+     * True when the input is a fragment of JSON array, which ends at entry separator.
+     */
+    boolean isFragment = false;
+
+    /**
+     * True when the end of JSON array is reached, as opposed to the end of a fragment.
+     */
+    boolean isArrayEnd = false;
+
+    /**
+     * Source of subsequent chunks or null, when the whole input is already in the buffer.
+     */
+    InputStream stream;
+    ByteBuffer buffer;
+
+    /**
+     * The number of bytes consumed before the current chunk, adjusted by initial buffer position.
+     */
+    long chunkOffset;
 
     StreamDateReader(InputStream stream) {
-        scanner = new Scanner(stream);
-        scanner.useDelimiter(JSON_SEPARATOR_PATTERN);
+        this.stream = stream;
+        buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        buffer.limit(0);
+    }
+
+    /**
+     * Constructs the reader of JSON array contained in the remaining bytes of the buffer,
+     * for example, memory mapped file.
+     * @param buffer the buffer, which position is advanced while reading.
+     */
+    StreamDateReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.chunkOffset = -buffer.position();
+    }
+
+    /**
+     * Constructs the reader of a fragment of JSON array split at entry separators,
+     * so the end of the buffer is an acceptable end of entries.
+     * @param fragment the buffer, which position is advanced while reading.
+     * @param isArrayStart true when the fragment contains the start of JSON array.
+     */
+    StreamDateReader(ByteBuffer fragment, boolean isArrayStart) {
+        this(fragment);
+        this.isBof = isArrayStart;
+        this.isFragment = true;
+    }
+
+    /**
+     * @return the next byte without advancing the position or END_OF_INPUT.
+     */
+    private int peek() throws DateReaderException {
+        if (!buffer.hasRemaining()) {
+            if (null == stream) {
+                return END_OF_INPUT;
+            }
+            try {
+                int length = stream.read(buffer.array());
+                if (length < 0) {
+                    stream = null;
+                    return END_OF_INPUT;
+                }
+                chunkOffset += buffer.limit();
+                buffer.position(0);
+                buffer.limit(length);
+            } catch (IOException e) {
+                throw new DateReaderException("Cannot read JSON array.", e);
+            }
+            if (!buffer.hasRemaining()) {
+                return peek();
+            }
+        }
+        return buffer.get(buffer.position());
+    }
+
+    private void skip() {
+        buffer.position(buffer.position() + 1);
+    }
+
+    private static boolean isWhitespace(int value) {
+        return ' ' == value || '\t' == value || '\r' == value || '\n' == value;
     }
 
     /**
      * Process the start of JSON array.
-     * precondition: scanner.hasNext()
      */
     private void readJsonArrayStart() throws DateReaderException {
-        scanner.useDelimiter(JSON_NON_WORD_PATTERN);
-        String entry = scanner.next();
-        if (!JSON_ARRAY_START.equals(entry)) {
+        int value = peek();
+        while (isWhitespace(value) || JSON_QUOTE == value) {
+            skip();
+            value = peek();
+        }
+        if (END_OF_INPUT == value) {
+            throw new DateReaderException("Missing end of JSON array.");
+        } else if (JSON_ARRAY_START.charAt(0) != value) {
             throw new DateReaderException("Unexpected token in JSON array, expected " + JSON_ARRAY_START);
         }
-        scanner.useDelimiter(JSON_SEPARATOR_PATTERN);
+        skip();
     }
 
-    @Override
-    public LocalDate read() throws DateReaderException {
-        if (!isEof) {
-            if (!scanner.hasNext()) {
-                throw new DateReaderException("Missing end of JSON array.");
-            } else {
-                if (isBof) {
-                    isBof = false;
-                    readJsonArrayStart();
-                }
+    /**
+     * Decode a number of consecutive decimal digits.
+     * @param minDigits the number of digits, which must be present.
+     * @param maxDigits the number of digits, after which decoding stops.
+     */
+    private int readNumber(int minDigits, int maxDigits) throws DateReaderException {
+        int result = 0;
+        int digits = 0;
+        for (int value = peek(); digits < maxDigits && value >= '0' && value <= '9'; value = peek()) {
+            result = result * 10 + value - '0';
+            ++digits;
+            skip();
+        }
+        if (digits < minDigits) {
+            throw new DateReaderException("Unexpected token in JSON array, expected date in " + YYYY_MMM_DD + " format.");
+        }
+        return result;
+    }
 
-                String entry = scanner.next();
-                if (JSON_ARRAY_END.equals(entry)) {
-                    isEof = true;
-                    return null;
-                } else {
-                    return LocalDate.parse(entry, DATE_TIME_FORMATTER);
-                }
-            }
-        } else {
+    private void readDateSeparator() throws DateReaderException {
+        if ('-' != peek()) {
+            throw new DateReaderException("Unexpected token in JSON array, expected date in " + YYYY_MMM_DD + " format.");
+        }
+        skip();
+    }
+
+    /**
+     * Advance to the next entry of JSON array, skipping separators.
+     * @return true when the entry is a date or false at the end of JSON array.
+     */
+    private boolean nextEntry() throws DateReaderException {
+        if (isEof) {
             throw new DateReaderException("Attempt to read over the end of JSON array.");
         }
+        if (isBof) {
+            isBof = false;
+            readJsonArrayStart();
+        }
+        int value = peek();
+        while (isWhitespace(value) || JSON_SEPARATOR == value || JSON_QUOTE == value) {
+            skip();
+            value = peek();
+        }
+        if (END_OF_INPUT == value && isFragment) {
+            isEof = true;
+            return false;
+        } else if (END_OF_INPUT == value) {
+            throw new DateReaderException("Missing end of JSON array.");
+        } else if (JSON_ARRAY_END.charAt(0) == value) {
+            skip();
+            isEof = true;
+            isArrayEnd = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public long readEpochDay() throws DateReaderException {
+        if (!nextEntry()) {
+            return NO_DATE;
+        }
+        int year = readNumber(4, 9);
+        readDateSeparator();
+        int month = readNumber(2, 2);
+        readDateSeparator();
+        int day = readNumber(2, 2);
+        int value = peek();
+        if (END_OF_INPUT != value && !isWhitespace(value) && JSON_SEPARATOR != value && JSON_QUOTE != value
+                && JSON_ARRAY_END.charAt(0) != value) {
+            throw new DateReaderException("Unexpected token in JSON array, expected date in " + YYYY_MMM_DD + " format.");
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    @Override
+    public LocalDate read() throws DateReaderException {
+        long epochDay = readEpochDay();
+        return NO_DATE == epochDay ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    @Override
+    public long getBytesRead() {
+        return chunkOffset + buffer.position();
     }
 
 }
@@ -3,54 +3,130 @@ package com.aziubin;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
 import java.time.LocalDate;
 
 /**
  * Minimalistic implementation of DateWriter interface,
  * which writes JSON array to the underlying stream.
+ * Digits of yyyy-MM-dd dates are formatted directly into a reusable block,
+ * which is written to the stream when full, so no strings are created per date.
+ * Dates, which years do not have four digits, are formatted by DATE_TIME_FORMATTER,
+ * so the output is the same for any date.
  * Edge cases or error processing is not covered for the sake of simplicity.
  */
 class StreamDateWriter extends AbstractJsonStreamSupport implements DateWriter {
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * The longest JSON array entry, including separator and quotes,
+     * formatted for a date with extremely large year.
+     */
+    private static final int MAX_ENTRY_LENGTH = 32;
+
     boolean isBof = true;
     boolean isEof = false;
-    OutputStreamWriter writer;
+    OutputStream stream;
+    byte[] block = new byte[BLOCK_SIZE];
+    int blockLength;
 
     StreamDateWriter(OutputStream stream) {
-        CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder();
-        writer = new OutputStreamWriter(stream, encoder);
+        this.stream = stream;
     }
 
-    private void writeJsonArrayStart() throws IOException {
-        writer.write(JSON_ARRAY_START);
+    private void writeJsonArrayStart() {
+        block[blockLength++] = (byte) JSON_ARRAY_START.charAt(0);
     }
 
     public void writeJsonArrayEnd() throws IOException  {
-        writer.write(JSON_ARRAY_END);
+        if (blockLength == BLOCK_SIZE) {
+            flushBlock();
+        }
+        block[blockLength++] = (byte) JSON_ARRAY_END.charAt(0);
     }
 
-    @Override
-    public void write(LocalDate date) throws IOException {
+    private void flushBlock() throws IOException {
+        stream.write(block, 0, blockLength);
+        blockLength = 0;
+    }
+
+    /**
+     * Write the separator or the start of JSON array and the opening quote.
+     */
+    private void writeEntryStart() throws IOException {
         if (isEof) {
             throw new EOFException("Attempt to write over the end of JSON array.");
-        } else if (isBof) {
+        }
+        if (blockLength > BLOCK_SIZE - MAX_ENTRY_LENGTH) {
+            flushBlock();
+        }
+        if (isBof) {
             isBof = false;
             writeJsonArrayStart();
         } else {
-            writer.write(JSON_SEPARATOR);
+            block[blockLength++] = JSON_SEPARATOR;
+        }
+        block[blockLength++] = JSON_QUOTE;
+    }
+
+    private void writeDigits(int value, int digits) {
+        for (int i = blockLength + digits - 1; i >= blockLength; --i) {
+            block[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        blockLength += digits;
+    }
+
+    private void writeDate(int year, int month, int day) {
+        writeDigits(year, 4);
+        block[blockLength++] = '-';
+        writeDigits(month, 2);
+        block[blockLength++] = '-';
+        writeDigits(day, 2);
+        block[blockLength++] = JSON_QUOTE;
+    }
+
+    /**
+     * Format the date, which is not covered by direct formatting, the same way as originally.
+     */
+    private void writeFormatted(LocalDate date) {
+        String text = date.format(DATE_TIME_FORMATTER);
+        for (int i = 0; i < text.length(); ++i) {
+            block[blockLength++] = (byte) text.charAt(i);
+        }
+        block[blockLength++] = JSON_QUOTE;
+    }
+
+    @Override
+    public void write(LocalDate date) throws IOException {
+        writeEntryStart();
+        int year = date.getYear();
+        if (year >= MIN_FOUR_DIGIT_YEAR && year <= MAX_FOUR_DIGIT_YEAR) {
+            writeDate(year, date.getMonthValue(), date.getDayOfMonth());
+        } else {
+            writeFormatted(date);
+        }
+    }
+
+    @Override
+    public void write(int[] epochDays, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; ++i) {
+            int epochDay = epochDays[i];
+            writeEntryStart();
+            if (epochDay >= MIN_FOUR_DIGIT_YEAR_EPOCH_DAY && epochDay <= MAX_FOUR_DIGIT_YEAR_EPOCH_DAY) {
+                int date = toYearMonthDay(epochDay);
+                writeDate(date / 10000, date / 100 % 100, date % 100);
+            } else {
+                writeFormatted(LocalDate.ofEpochDay(epochDay));
+            }
         }
-        writer.write(JSON_QUOTE);
-        writer.write(date.format(DATE_TIME_FORMATTER));
-        writer.write(JSON_QUOTE);
     }
 
     @Override
     public void commit() throws IOException {
         isEof = true;
         writeJsonArrayEnd();
-        writer.flush();
+        flushBlock();
+        stream.flush();
     }
 
 }
@@ -3,12 +3,15 @@ package com.aziubin;
 import java.io.IOException;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 /**
  * Implementation allowing customization of weekend days,
@@ -18,21 +21,44 @@ import java.util.logging.Logger;
  */
 public class TreeSetWorkdays extends AbstractLoadableWorkdays implements Workdays {
     private static final Logger logger = Logger.getLogger(TreeSetWorkdays.class.getName());
-    private static DayOfWeek[] dayOfWeekValues = DayOfWeek.values();
+    private static final int END_BOUNDARY = 1 << 31;
+    private static final int TREE_ENTRY_SIZE = 40;
+    private static final int LOCAL_DATE_SIZE = 24;
 
     /**
-     * Customizes regular non-working days of the week, having Saturday and Sunday by default.
-     * EnumSet is used to have best possible performance because verification is implemented
-     * as fast bit mask operations.
+     * Copy of regular non-working days of the week taken when the calendar is constructed,
+     * having Saturday and Sunday by default.
+     * @deprecated the set is informational only, weekend days are compiled into weekendMask
+     * by the constructor, so assigning or modifying the set does not affect calculations.
      */
+    @Deprecated
     protected Set<DayOfWeek> weekendSet = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
 
+    /**
+     * Weekend days compiled into a bit mask with precomputed incomplete week table,
+     * so weekday arithmetic is a table lookup without memory allocation.
+     */
+    WeekendMask weekendMask = WeekendMask.of(weekendSet);
+
+    /**
+     * Regular non-working days including changes over time, which is the weekend mask itself
+     * unless weekend days are scheduled.
+     */
+    WeekendRule weekendRule = weekendMask;
+
     /**
      * Holidays to assume when calculating the number of working days in a range.
      * USe binary tree data structure for optimal performance.
      */
     TreeSet<LocalDate> holidaySet = new TreeSet<>();
 
+    /**
+     * Sorted array copy of holidaySet supporting rank and select operations,
+     * which are not available for the tree in logarithmic time.
+     * Lazily built on demand and discarded after holidays modification.
+     */
+    private HolidayIndex holidayIndex;
+
     TreeSetWorkdays() {}
 
     /**
@@ -40,7 +66,21 @@ public class TreeSetWorkdays extends AbstractLoadableWorkdays implements Workday
      * @param weekendSet customized set of weekend days.
      */
     TreeSetWorkdays(Set<DayOfWeek> weekendSet) {
-        this.weekendSet = weekendSet;
+        this.weekendSet = EnumSet.noneOf(DayOfWeek.class);
+        this.weekendSet.addAll(weekendSet);
+        this.weekendMask = WeekendMask.of(weekendSet);
+        this.weekendRule = weekendMask;
+    }
+
+    /**
+     * Constructs an instance of TreeSetWorkdays assuming weekend days changing over time,
+     * where weekendSet contains weekend days of the latest change.
+     * @param weekendSchedule weekend days with their effective dates.
+     */
+    public TreeSetWorkdays(WeekendSchedule weekendSchedule) {
+        this.weekendSet = weekendSchedule.getLatestWeekendDays();
+        this.weekendMask = WeekendMask.of(weekendSet);
+        this.weekendRule = weekendSchedule;
     }
 
     /**
@@ -63,12 +103,29 @@ public class TreeSetWorkdays extends AbstractLoadableWorkdays implements Workday
         load(reader);
     }
 
+    @Override
+    public IntStream streamWorkdays(LocalDate startDate, LocalDate endDate) {
+        return WorkdaySpliterator.stream(weekendRule, getHolidayIndex(), startDate, endDate);
+    }
+
+    @Override
+    public Set<DayOfWeek> getWeekendDays() {
+        return weekendMask.toSet();
+    }
+
+    @Override
+    public WeekendRule getWeekendRule() {
+        return weekendRule;
+    }
+
     @Override
     public boolean addHoliday(LocalDate holidayDate) {
         boolean result = false;
-        DayOfWeek dayOfWeek = holidayDate.getDayOfWeek();
-        if (!weekendSet.contains(dayOfWeek)) {
+        if (!weekendRule.isWeekendDay(holidayDate.toEpochDay())) {
             result = this.holidaySet.add(holidayDate);
+            if (result) {
+                holidayIndex = null;
+            }
         } else {
             if (logger.isLoggable(Level.FINE)) {
                 logger.log(Level.FINE, "Holiday is ignored because it overlaps with non-working day of the week: " + holidayDate);
@@ -77,46 +134,130 @@ public class TreeSetWorkdays extends AbstractLoadableWorkdays implements Workday
         return result;
     }
 
+    @Override
+    public boolean removeHoliday(LocalDate holidayDate) {
+        boolean result = holidaySet.remove(holidayDate);
+        if (result) {
+            holidayIndex = null;
+        }
+        return result;
+    }
+
+    /**
+     * The tree is updated in place, and sorted array index, when already built,
+     * is patched by a single merge with the batch instead of rebuilding it from the tree.
+     */
+    @Override
+    public long applyChanges(DateReader additions, DateReader removals) throws DateReaderException {
+        int[] addedDays = additions.readEpochDays();
+        int[] removedDays = removals.readEpochDays();
+        HolidayIndex added = HolidayIndex.of(addedDays, addedDays.length, weekendRule);
+        HolidayIndex removed = HolidayIndex.of(removedDays, removedDays.length, WeekendMask.of(0));
+        long result = 0;
+        for (int day : removed.days) {
+            if (holidaySet.remove(LocalDate.ofEpochDay(day))) {
+                ++result;
+            }
+        }
+        for (int day : added.days) {
+            if (holidaySet.add(LocalDate.ofEpochDay(day))) {
+                ++result;
+            }
+        }
+        if (null != holidayIndex) {
+            holidayIndex = holidayIndex.difference(removed).union(added);
+        }
+        return result;
+    }
+
     @Override
     public long load(DateReader reader) throws DateReaderException {
         holidaySet.clear();
+        holidayIndex = null;
         return super.load(reader);
     }
 
+    /**
+     * Replace all holidays with the ones provided by the reader in bulk.
+     * Weekend days are filtered out and entries are sorted and deduplicated in a primitive array,
+     * then the tree is built from the sorted sequence at once, which avoids per entry
+     * rebalancing of the tree.
+     */
+    @Override
+    public long loadAll(DateReader reader) throws DateReaderException {
+        int[] epochDays = reader.readEpochDays();
+        return loadEpochDays(epochDays, epochDays.length);
+    }
+
+    /**
+     * Replace all holidays with the specified epoch days, which are handed over in bulk.
+     * @param epochDays the array of epoch days in any order, which can contain duplicates.
+     *     The array is reordered in place.
+     * @param length the number of leading array entries to use.
+     * @return the number of holiday entries assumed for further calculations.
+     */
+    long loadEpochDays(int[] epochDays, int length) {
+        HolidayIndex index = HolidayIndex.of(epochDays, length, weekendRule);
+        holidaySet.clear();
+        // Adding sorted set to empty tree set builds balanced tree in linear time.
+        holidaySet.addAll(new EpochDaySortedSet(index.days));
+        holidayIndex = index;
+        return holidaySet.size();
+    }
+
+    /**
+     * Holidays are written in bulk from the sorted array index instead of iterating the tree.
+     */
     @Override
     public long save(DateWriter writer) throws IOException {
-        int result = 0;
-        for (LocalDate date : holidaySet) {
-            writer.write(date);
-            ++result;
-        }
+        int[] days = getHolidayIndex().days;
+        writer.write(days, 0, days.length);
         writer.commit();
-        return result;
+        return days.length;
     }
 
     /**
-     * Enumerate days of incomplete week irrespective to weekends.
-     * Profiler hotspot shows this method in a lost of top CPU consumers,
-     * so need to have this as optimal as possible. 
-     * @param date the day of the week from which to start enumeration.
-     * @param incompleteWeekDays the number of week days to include.
-     *     Expected value is less than 7, but higher values can be OK too.
-     * 
-     * @return the set containing incompleteWeekDays entries of week days starting from date parameter
+     * @return approximate number of bytes occupied by the calendar, assuming compressed references,
+     * which is proportional to the number of holidays: a tree entry and LocalDate instance per holiday
+     * and an int per holiday for the sorted array index, when it is built.
      */
-    private static Set<DayOfWeek> getIncompleteWeek(LocalDate date, long incompleteWeekDays) {
-        Set<DayOfWeek> result = EnumSet.noneOf(DayOfWeek.class);
-
-        // Calculate getDayOfWeek() only once as it contains some heavy math.
-        int dayIdx = date.getDayOfWeek().ordinal();
+    public long getMemoryFootprint() {
+        HolidayIndex index = holidayIndex;
+        return OBJECT_SIZE + (TREE_ENTRY_SIZE + LOCAL_DATE_SIZE) * (long) holidaySet.size()
+                + (null == index ? 0 : ARRAY_HEADER_SIZE + 4L * index.size());
+    }
 
-        // Avoid any conditions, allowing potential for loop unrolling.
-        for (int i = 0; i < incompleteWeekDays; ++i) {
-            result.add(dayOfWeekValues[(i + dayIdx) % dayOfWeekValues.length]);
+    /**
+     * @return sorted array index of holidays, which is built once after holidays modification.
+     */
+    HolidayIndex getHolidayIndex() {
+        HolidayIndex result = holidayIndex;
+        if (null == result) {
+            int[] days = new int[holidaySet.size()];
+            int i = 0;
+            for (LocalDate date : holidaySet) {
+                days[i++] = Math.toIntExact(date.toEpochDay());
+            }
+            result = 0 == days.length ? HolidayIndex.EMPTY : new HolidayIndex(days);
+            holidayIndex = result;
         }
         return result;
     }
 
+    /**
+     * Whole weeks are skipped arithmetically according to the customized weekend days,
+     * and the number of holidays to skip is found by rank and select over sorted holidays,
+     * so complexity is O(log(n)) irrespective to the number of workdays.
+     * Weekend days changing over time fall back to the search over range counts.
+     */
+    @Override
+    public LocalDate addWorkdays(LocalDate date, long workdays) {
+        if (weekendRule != weekendMask) {
+            return super.addWorkdays(date, workdays);
+        }
+        return LocalDate.ofEpochDay(getHolidayIndex().addWorkdays(weekendMask, date.toEpochDay(), workdays));
+    }
+
     /**
      * Usually non-working days of the week are Saturday and Sunday,
      * but depending from culture, customizable non-working days are possible.
@@ -127,17 +268,16 @@ public class TreeSetWorkdays extends AbstractLoadableWorkdays implements Workday
      */
     @Override
     public long getWorkdays(LocalDate startDate, LocalDate endDate) {
-        long rangeDays = ChronoUnit.DAYS.between(startDate, endDate) + 1;  // compensate excluded end date.
+        long startEpochDay = startDate.toEpochDay();
+        long rangeDays = endDate.toEpochDay() - startEpochDay + 1;  // compensate excluded end date.
         if (0 > rangeDays) {
             throw new IllegalArgumentException("Start date of the range is after the end date.");
+        } else if (0 == rangeDays) {
+            return 0;  // tree view does not accept the end before the start.
         }
-        // Regular non-working days of the week for all complete weeks in the range.
-        long workDays = rangeDays/dayOfWeekValues.length * (dayOfWeekValues.length - weekendSet.size());
-
-        // Days in the remaining incomplete week can be regular weekend days or regular working days.
-        Set<DayOfWeek> incompleteWeek = getIncompleteWeek(startDate, rangeDays % dayOfWeekValues.length);
-        incompleteWeek.removeAll(weekendSet);
-        workDays += incompleteWeek.size();
+        // Regular non-working days of the week for all complete weeks in the range,
+        // days in the remaining incomplete week are counted by precomputed table lookup.
+        long workDays = weekendRule.getWeekdays(startEpochDay, rangeDays);
 
         // Create a view of the date range portion of all stored holidays.
         // This does not duplicate the date entries underneath, so can be OK with huge volumes.
@@ -147,5 +287,63 @@ public class TreeSetWorkdays extends AbstractLoadableWorkdays implements Workday
         return result;
     }
 
-}
+    /**
+     * Calculate workdays for many ranges sweeping the holiday set only once.
+     * Range boundaries are sorted together, so the number of holidays before each boundary
+     * is collected by a single in-order traversal of the part of the tree covered by the ranges,
+     * instead of a subSet walk per range.
+     */
+    @Override
+    public void getWorkdays(int[] startEpochDays, int[] endEpochDays, long[] result) {
+        int count = startEpochDays.length;
+        if (count != endEpochDays.length || result.length < count) {
+            throw new IllegalArgumentException("Ranges and result arrays do not match.");
+        }
+        if (0 == count) {
+            return;
+        }
+        // Each boundary keeps epoch day in high 32 bits, then the flag of inclusive end boundary
+        // and the range index, so boundaries of the same day are ordered as starts first.
+        long[] boundaries = new long[count * 2];
+        int minEpochDay = Integer.MAX_VALUE;
+        int maxEpochDay = Integer.MIN_VALUE;
+        for (int i = 0; i < count; ++i) {
+            long rangeDays = (long) endEpochDays[i] - startEpochDays[i] + 1;
+            if (0 > rangeDays) {
+                throw new IllegalArgumentException("Start date of the range is after the end date.");
+            }
+            result[i] = weekendRule.getWeekdays(startEpochDays[i], rangeDays);
+            boundaries[2 * i] = (long) startEpochDays[i] << 32 | i;
+            boundaries[2 * i + 1] = (long) endEpochDays[i] << 32 | (END_BOUNDARY | i) & 0xFFFFFFFFL;
+            minEpochDay = Math.min(minEpochDay, startEpochDays[i]);
+            maxEpochDay = Math.max(maxEpochDay, endEpochDays[i]);
+        }
+        Arrays.sort(boundaries);
 
+        // Only empty ranges ending the day before they start have minimum after maximum.
+        Iterator<LocalDate> iterator = minEpochDay > maxEpochDay ? Collections.emptyIterator() : holidaySet.subSet(
+                LocalDate.ofEpochDay(minEpochDay), true, LocalDate.ofEpochDay(maxEpochDay), true).iterator();
+        long holiday = iterator.hasNext() ? iterator.next().toEpochDay() : Long.MAX_VALUE;
+        long passedHolidays = 0;
+        for (long boundary : boundaries) {
+            long epochDay = boundary >> 32;
+            int flags = (int) boundary;
+            if (0 == (flags & END_BOUNDARY)) {
+                // Start boundary, holidays strictly before the day are outside the range.
+                while (holiday < epochDay) {
+                    ++passedHolidays;
+                    holiday = iterator.hasNext() ? iterator.next().toEpochDay() : Long.MAX_VALUE;
+                }
+                result[flags] += passedHolidays;
+            } else {
+                // Inclusive end boundary.
+                while (holiday <= epochDay) {
+                    ++passedHolidays;
+                    holiday = iterator.hasNext() ? iterator.next().toEpochDay() : Long.MAX_VALUE;
+                }
+                result[flags & ~END_BOUNDARY] -= passedHolidays;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.aziubin;
+
+import java.time.DayOfWeek;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Regular non-working days of the week compiled into a 7 bit mask,
+ * where bit number corresponds to DayOfWeek ordinal.
+ * The number of working days in each incomplete week is precomputed for every
+ * start day of the week and length, so weekday arithmetic is a single table lookup
+ * without any memory allocation.
+ * Instances are immutable and interned, there are only 128 possible masks.
+ */
+final class WeekendMask implements WeekendRule {
+    static final int DAYS_IN_WEEK = 7;
+
+    /**
+     * Epoch day 0 (1970-01-01) is Thursday, which has ordinal 3.
+     */
+    private static final int EPOCH_DAY_OF_WEEK = 3;
+
+    private static final WeekendMask[] MASKS = new WeekendMask[1 << DAYS_IN_WEEK];
+    static {
+        for (int mask = 0; mask < MASKS.length; ++mask) {
+            MASKS[mask] = new WeekendMask(mask);
+        }
+    }
+
+    final int mask;
+
+    /**
+     * The number of working days in a complete week.
+     */
+    final int weekdaysPerWeek;
+
+    /**
+     * The number of working days in the incomplete week,
+     * indexed by start day of the week ordinal * 7 + the number of days.
+     */
+    private final byte[] incompleteWeekdays = new byte[DAYS_IN_WEEK * DAYS_IN_WEEK];
+
+    /**
+     * The distance in days to the n-th working day after and before a day of the week,
+     * indexed by day of the week ordinal * 8 + n, where n is from 1 to weekdaysPerWeek.
+     */
+    private final byte[] nextWeekdayOffsets = new byte[DAYS_IN_WEEK * (DAYS_IN_WEEK + 1)];
+    private final byte[] previousWeekdayOffsets = new byte[DAYS_IN_WEEK * (DAYS_IN_WEEK + 1)];
+
+    private WeekendMask(int mask) {
+        this.mask = mask;
+        this.weekdaysPerWeek = DAYS_IN_WEEK - Integer.bitCount(mask);
+        for (int start = 0; start < DAYS_IN_WEEK; ++start) {
+            int weekdays = 0;
+            for (int length = 0; length < DAYS_IN_WEEK; ++length) {
+                incompleteWeekdays[start * DAYS_IN_WEEK + length] = (byte) weekdays;
+                if (!isWeekend((start + length) % DAYS_IN_WEEK)) {
+                    ++weekdays;
+                }
+            }
+            int next = 0;
+            int previous = 0;
+            for (int offset = 1; offset <= DAYS_IN_WEEK; ++offset) {
+                if (!isWeekend((start + offset) % DAYS_IN_WEEK)) {
+                    nextWeekdayOffsets[start * (DAYS_IN_WEEK + 1) + ++next] = (byte) offset;
+                }
+                if (!isWeekend((start - offset + DAYS_IN_WEEK) % DAYS_IN_WEEK)) {
+                    previousWeekdayOffsets[start * (DAYS_IN_WEEK + 1) + ++previous] = (byte) offset;
+                }
+            }
+        }
+    }
+
+    static WeekendMask of(int mask) {
+        return MASKS[mask];
+    }
+
+    static WeekendMask of(Set<DayOfWeek> weekendSet) {
+        int mask = 0;
+        for (DayOfWeek dayOfWeek : weekendSet) {
+            mask |= 1 << dayOfWeek.ordinal();
+        }
+        return MASKS[mask];
+    }
+
+    /**
+     * @return new modifiable set of weekend days represented by the mask.
+     */
+    Set<DayOfWeek> toSet() {
+        Set<DayOfWeek> result = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            if (isWeekend(dayOfWeek.ordinal())) {
+                result.add(dayOfWeek);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return DayOfWeek ordinal of specified epoch day.
+     */
+    static int getDayOfWeek(long epochDay) {
+        return (int) Math.floorMod(epochDay + EPOCH_DAY_OF_WEEK, DAYS_IN_WEEK);
+    }
+
+    boolean isWeekend(int dayOfWeek) {
+        return 0 != (mask & 1 << dayOfWeek);
+    }
+
+    @Override
+    public boolean isWeekendDay(long epochDay) {
+        return isWeekend(getDayOfWeek(epochDay));
+    }
+
+    /**
+     * @param startEpochDay the first day of the range.
+     * @param rangeDays the number of days in the range.
+     * @return the number of days in the range, which are not regular weekend days.
+     */
+    @Override
+    public long getWeekdays(long startEpochDay, long rangeDays) {
+        long result = rangeDays / DAYS_IN_WEEK * weekdaysPerWeek;
+        return result + incompleteWeekdays[getDayOfWeek(startEpochDay) * DAYS_IN_WEEK + (int) (rangeDays % DAYS_IN_WEEK)];
+    }
+
+    /**
+     * @param epochDay the day from which to start counting, which itself is not counted.
+     * @param weekdays positive number of days, which are not regular weekend days.
+     * @return epoch day of the specified weekday after the day, found by whole week arithmetic.
+     */
+    long getNextWeekday(long epochDay, long weekdays) {
+        if (0 == weekdaysPerWeek) {
+            throw new IllegalArgumentException("Each day of the week is a regular non-working day.");
+        }
+        long weeks = (weekdays - 1) / weekdaysPerWeek;
+        int remainder = (int) ((weekdays - 1) % weekdaysPerWeek) + 1;
+        return epochDay + weeks * DAYS_IN_WEEK + nextWeekdayOffsets[getDayOfWeek(epochDay) * (DAYS_IN_WEEK + 1) + remainder];
+    }
+
+    /**
+     * @param epochDay the day from which to start counting backward, which itself is not counted.
+     * @param weekdays positive number of days, which are not regular weekend days.
+     * @return epoch day of the specified weekday before the day, found by whole week arithmetic.
+     */
+    long getPreviousWeekday(long epochDay, long weekdays) {
+        if (0 == weekdaysPerWeek) {
+            throw new IllegalArgumentException("Each day of the week is a regular non-working day.");
+        }
+        long weeks = (weekdays - 1) / weekdaysPerWeek;
+        int remainder = (int) ((weekdays - 1) % weekdaysPerWeek) + 1;
+        return epochDay - weeks * DAYS_IN_WEEK - previousWeekdayOffsets[getDayOfWeek(epochDay) * (DAYS_IN_WEEK + 1) + remainder];
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.aziubin;
+
+/**
+ * Regular non-working days, which can be a fixed set of days of the week,
+ * or a schedule of such sets changing over time.
+ * Days are represented as epoch days, so implementations do not allocate memory.
+ */
+public interface WeekendRule {
+
+    /**
+     * @return true when the day is a regular non-working day.
+     */
+    boolean isWeekendDay(long epochDay);
+
+    /**
+     * @param startEpochDay the first day of the range.
+     * @param rangeDays non-negative number of days in the range.
+     * @return the number of days in the range, which are not regular non-working days.
+     */
+    long getWeekdays(long startEpochDay, long rangeDays);
+
+}
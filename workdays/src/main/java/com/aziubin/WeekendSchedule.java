@@ -0,0 +1,142 @@
+package com.aziubin;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Weekend days changing over time, for example, when a country switches
+ * from Friday and Saturday to Saturday and Sunday weekend.
+ * Each set of weekend days is effective from its date until the next change,
+ * and the initial set is effective before the first change.
+ * Changes are kept in a sorted array together with the number of weekdays
+ * from the first change to each change, so the number of weekdays before any day is found
+ * by binary search of its interval and whole week arithmetic within the interval.
+ * A range spanning many intervals is therefore counted in O(log(n)) of the number of changes.
+ * Instances are immutable.
+ */
+public final class WeekendSchedule implements WeekendRule {
+
+    /**
+     * Weekend masks of intervals, the first one is effective before the first change.
+     */
+    private final WeekendMask[] masks;
+
+    /**
+     * Epoch days, from which masks are effective, the first element is not used.
+     */
+    private final long[] starts;
+
+    /**
+     * The number of weekdays from the start of the second interval to the start of each interval,
+     * the first element is not used.
+     */
+    private final long[] cumulativeWeekdays;
+
+    /**
+     * @param weekendSet weekend days effective before the first change.
+     */
+    public WeekendSchedule(Set<DayOfWeek> weekendSet) {
+        this(new WeekendMask[] {WeekendMask.of(weekendSet)}, new long[] {Long.MIN_VALUE});
+    }
+
+    private WeekendSchedule(WeekendMask[] masks, long[] starts) {
+        this.masks = masks;
+        this.starts = starts;
+        this.cumulativeWeekdays = new long[masks.length];
+        for (int i = 2; i < masks.length; ++i) {
+            cumulativeWeekdays[i] = cumulativeWeekdays[i - 1] + masks[i - 1].getWeekdays(starts[i - 1], starts[i] - starts[i - 1]);
+        }
+    }
+
+    /**
+     * @param effectiveDate the first date, from which weekend days are effective.
+     * @param weekendSet weekend days effective from the date until the next change.
+     * @return new schedule with the change, which replaces the change of the same date, if any.
+     */
+    public WeekendSchedule with(LocalDate effectiveDate, Set<DayOfWeek> weekendSet) {
+        long epochDay = effectiveDate.toEpochDay();
+        int position = Arrays.binarySearch(starts, 1, starts.length, epochDay);
+        WeekendMask[] newMasks;
+        long[] newStarts;
+        if (position >= 0) {
+            newMasks = masks.clone();
+            newStarts = starts;
+        } else {
+            position = -position - 1;
+            newMasks = new WeekendMask[masks.length + 1];
+            newStarts = new long[starts.length + 1];
+            System.arraycopy(masks, 0, newMasks, 0, position);
+            System.arraycopy(masks, position, newMasks, position + 1, masks.length - position);
+            System.arraycopy(starts, 0, newStarts, 0, position);
+            System.arraycopy(starts, position, newStarts, position + 1, starts.length - position);
+            newStarts[position] = epochDay;
+        }
+        newMasks[position] = WeekendMask.of(weekendSet);
+        return new WeekendSchedule(newMasks, newStarts);
+    }
+
+    /**
+     * @return the index of the interval containing the day.
+     */
+    private int getInterval(long epochDay) {
+        int low = 1;
+        int high = starts.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * @return the number of weekdays from the start of the second interval to the day,
+     * negative for days before it.
+     */
+    private long getWeekdaysBefore(long epochDay) {
+        int interval = getInterval(epochDay);
+        if (0 == interval) {
+            long origin = 1 == starts.length ? 0 : starts[1];
+            return epochDay >= origin ? masks[0].getWeekdays(origin, epochDay - origin)
+                    : -masks[0].getWeekdays(epochDay, origin - epochDay);
+        }
+        return cumulativeWeekdays[interval] + masks[interval].getWeekdays(starts[interval], epochDay - starts[interval]);
+    }
+
+    WeekendMask getWeekendMask(long epochDay) {
+        return masks[getInterval(epochDay)];
+    }
+
+    /**
+     * @return weekend days effective at the date.
+     */
+    public Set<DayOfWeek> getWeekendDays(LocalDate date) {
+        return getWeekendMask(date.toEpochDay()).toSet();
+    }
+
+    /**
+     * @return weekend days of the latest change, which stay effective afterwards.
+     */
+    public Set<DayOfWeek> getLatestWeekendDays() {
+        return masks[masks.length - 1].toSet();
+    }
+
+    @Override
+    public boolean isWeekendDay(long epochDay) {
+        return getWeekendMask(epochDay).isWeekendDay(epochDay);
+    }
+
+    @Override
+    public long getWeekdays(long startEpochDay, long rangeDays) {
+        if (1 == masks.length) {
+            return masks[0].getWeekdays(startEpochDay, rangeDays);
+        }
+        return getWeekdaysBefore(startEpochDay + rangeDays) - getWeekdaysBefore(startEpochDay);
+    }
+
+}
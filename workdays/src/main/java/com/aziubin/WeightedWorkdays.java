@@ -0,0 +1,297 @@
+package com.aziubin;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Implementation supporting partial working days, for example, half-days before holidays
+ * or shortened trading sessions, in addition to whole day holidays.
+ * Each weekday has a fixed-point weight from 0 (holiday) to WEIGHT_ONE (regular working day),
+ * and only days with reduced weight are stored as sorted epoch days with parallel primitive weights.
+ * Reduced weights and holidays are summarized by two Fenwick trees over the sorted days,
+ * so both weighted and whole range sums are two binary searches and O(log(n)) tree lookups,
+ * and changing the weight of an already stored day is O(log(n)) as well.
+ * Adding or removing a stored day shifts the arrays and rebuilds the trees in linear time.
+ */
+public class WeightedWorkdays extends AbstractLoadableWorkdays implements Workdays {
+    private static final Logger logger = Logger.getLogger(WeightedWorkdays.class.getName());
+
+    /**
+     * Fixed-point weight of a full working day, binary scale keeps halves and quarters exact.
+     */
+    public static final int WEIGHT_ONE = 1 << 16;
+    public static final int WEIGHT_HALF = WEIGHT_ONE / 2;
+
+    /**
+     * Regular non-working days of the week.
+     */
+    final WeekendMask weekendMask;
+
+    /**
+     * Days having weight less than WEIGHT_ONE, which do not overlap with weekend days.
+     */
+    HolidayIndex days = HolidayIndex.EMPTY;
+
+    /**
+     * Weights of days, indexed in parallel with days.
+     */
+    int[] weights = new int[0];
+
+    /**
+     * Fenwick trees indexed from 1 over days, summarizing missing weight WEIGHT_ONE - weight
+     * and the number of holidays having zero weight.
+     */
+    long[] missingWeights = new long[1];
+    long[] holidayCounts = new long[1];
+
+    WeightedWorkdays() {
+        this(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+    }
+
+    /**
+     * Constructs an instance of WeightedWorkdays assuming customized weekend days.
+     * @param weekendSet customized set of weekend days.
+     */
+    public WeightedWorkdays(Set<DayOfWeek> weekendSet) {
+        this.weekendMask = WeekendMask.of(weekendSet);
+    }
+
+    /**
+     * @param fraction the fraction of a full working day from 0 to 1.
+     * @return fixed-point weight closest to the fraction.
+     */
+    public static int toWeight(double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("Weight must be from 0 to 1: " + fraction);
+        }
+        return (int) Math.round(fraction * WEIGHT_ONE);
+    }
+
+    /**
+     * Add the value to the element of Fenwick tree and all its parents.
+     */
+    private static void add(long[] tree, int position, long delta) {
+        for (int i = position + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @return the sum of the specified number of leading elements of Fenwick tree.
+     */
+    private static long sum(long[] tree, int count) {
+        long result = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            result += tree[i];
+        }
+        return result;
+    }
+
+    /**
+     * Build both trees from weights in linear time, pushing each node to its parent once.
+     */
+    private void buildTrees() {
+        int length = weights.length;
+        long[] missing = new long[length + 1];
+        long[] counts = new long[length + 1];
+        for (int i = 1; i <= length; ++i) {
+            missing[i] += WEIGHT_ONE - weights[i - 1];
+            counts[i] += 0 == weights[i - 1] ? 1 : 0;
+            int parent = i + (i & -i);
+            if (parent <= length) {
+                missing[parent] += missing[i];
+                counts[parent] += counts[i];
+            }
+        }
+        missingWeights = missing;
+        holidayCounts = counts;
+    }
+
+    /**
+     * Replace stored days and weights, which are owned by the instance afterwards.
+     */
+    private void setDays(HolidayIndex newDays, int[] newWeights) {
+        days = newDays;
+        weights = newWeights;
+        buildTrees();
+    }
+
+    /**
+     * @return fixed-point weight of the day, zero for weekend days and holidays.
+     */
+    public int getWeight(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        if (weekendMask.isWeekendDay(epochDay)) {
+            return 0;
+        }
+        int position = Arrays.binarySearch(days.days, Math.toIntExact(epochDay));
+        return position >= 0 ? weights[position] : WEIGHT_ONE;
+    }
+
+    /**
+     * Set the weight of the weekday, where zero is a holiday and WEIGHT_ONE is a regular working day.
+     * @param date the day, which is ignored when it is a weekend day.
+     * @param weight fixed-point weight from 0 to WEIGHT_ONE.
+     * @return true when the weight is changed.
+     */
+    public boolean setWeight(LocalDate date, int weight) {
+        if (weight < 0 || weight > WEIGHT_ONE) {
+            throw new IllegalArgumentException("Weight must be from 0 to " + WEIGHT_ONE + ": " + weight);
+        }
+        long epochDay = date.toEpochDay();
+        if (weekendMask.isWeekendDay(epochDay)) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Weight is ignored because it overlaps with non-working day of the week: " + date);
+            }
+            return false;
+        }
+        int day = Math.toIntExact(epochDay);
+        int position = Arrays.binarySearch(days.days, day);
+        if (position >= 0) {
+            int oldWeight = weights[position];
+            if (oldWeight == weight) {
+                return false;
+            } else if (WEIGHT_ONE == weight) {
+                int[] newWeights = new int[weights.length - 1];
+                System.arraycopy(weights, 0, newWeights, 0, position);
+                System.arraycopy(weights, position + 1, newWeights, position, weights.length - position - 1);
+                setDays(days.without(day), newWeights);
+            } else {
+                weights[position] = weight;
+                add(missingWeights, position, oldWeight - weight);
+                add(holidayCounts, position, (0 == weight ? 1 : 0) - (0 == oldWeight ? 1 : 0));
+            }
+            return true;
+        } else if (WEIGHT_ONE == weight) {
+            return false;
+        }
+        position = -position - 1;
+        int[] newWeights = new int[weights.length + 1];
+        System.arraycopy(weights, 0, newWeights, 0, position);
+        newWeights[position] = weight;
+        System.arraycopy(weights, position, newWeights, position + 1, weights.length - position);
+        setDays(days.with(day), newWeights);
+        return true;
+    }
+
+    /**
+     * @param startDate inclusive start date of the range
+     * @param endDate inclusive end date of the range
+     * @return fixed-point sum of weights of days in the range, where WEIGHT_ONE is a full working day.
+     */
+    public long getWeightedWorkdays(LocalDate startDate, LocalDate endDate) {
+        long startEpochDay = startDate.toEpochDay();
+        long endEpochDay = endDate.toEpochDay();
+        long rangeDays = endEpochDay - startEpochDay + 1;  // compensate excluded end date.
+        if (0 > rangeDays) {
+            throw new IllegalArgumentException("Start date of the range is after the end date.");
+        }
+        long missing = sum(missingWeights, days.rank(endEpochDay + 1)) - sum(missingWeights, days.rank(startEpochDay));
+        return weekendMask.getWeekdays(startEpochDay, rangeDays) * WEIGHT_ONE - missing;
+    }
+
+    /**
+     * Partial working days are counted as working days.
+     */
+    @Override
+    public long getWorkdays(LocalDate startDate, LocalDate endDate) {
+        long startEpochDay = startDate.toEpochDay();
+        long endEpochDay = endDate.toEpochDay();
+        long rangeDays = endEpochDay - startEpochDay + 1;  // compensate excluded end date.
+        if (0 > rangeDays) {
+            throw new IllegalArgumentException("Start date of the range is after the end date.");
+        }
+        long holidays = sum(holidayCounts, days.rank(endEpochDay + 1)) - sum(holidayCounts, days.rank(startEpochDay));
+        return weekendMask.getWeekdays(startEpochDay, rangeDays) - holidays;
+    }
+
+    @Override
+    public Set<DayOfWeek> getWeekendDays() {
+        return weekendMask.toSet();
+    }
+
+    @Override
+    public boolean addHoliday(LocalDate holidayDate) {
+        return setWeight(holidayDate, 0);
+    }
+
+    /**
+     * Partial working days are not affected.
+     */
+    @Override
+    public boolean removeHoliday(LocalDate holidayDate) {
+        return 0 == getWeight(holidayDate) && setWeight(holidayDate, WEIGHT_ONE);
+    }
+
+    /**
+     * Replace all holidays with the ones provided by the reader,
+     * partial working days are kept unless they are loaded as holidays.
+     */
+    @Override
+    public long load(DateReader reader) throws DateReaderException {
+        return loadAll(reader);
+    }
+
+    /**
+     * Loaded holidays are merged with partial working days in a single pass
+     * and the trees are built once.
+     */
+    @Override
+    public long loadAll(DateReader reader) throws DateReaderException {
+        int[] readDays = reader.readEpochDays();
+        int[] holidays = HolidayIndex.of(readDays, readDays.length, weekendMask).days;
+        int[] partialDays = days.days;
+        int[] newDays = new int[holidays.length + partialDays.length];
+        int[] newWeights = new int[newDays.length];
+        int i = 0;
+        int j = 0;
+        int length = 0;
+        while (i < holidays.length || j < partialDays.length) {
+            if (j < partialDays.length && 0 == weights[j]) {
+                ++j;
+            } else if (j == partialDays.length || i < holidays.length && holidays[i] <= partialDays[j]) {
+                if (j < partialDays.length && holidays[i] == partialDays[j]) {
+                    ++j;
+                }
+                newDays[length++] = holidays[i++];
+            } else {
+                newWeights[length] = weights[j];
+                newDays[length++] = partialDays[j++];
+            }
+        }
+        setDays(0 == length ? HolidayIndex.EMPTY : new HolidayIndex(Arrays.copyOf(newDays, length)), Arrays.copyOf(newWeights, length));
+        return holidays.length;
+    }
+
+    /**
+     * Only holidays are saved, partial working days are not representable by DateWriter.
+     */
+    @Override
+    public long save(DateWriter writer) throws IOException {
+        int[] holidays = new int[(int) sum(holidayCounts, weights.length)];
+        int length = 0;
+        for (int i = 0; i < weights.length; ++i) {
+            if (0 == weights[i]) {
+                holidays[length++] = days.days[i];
+            }
+        }
+        writer.write(holidays, 0, length);
+        writer.commit();
+        return length;
+    }
+
+    /**
+     * @return approximate number of bytes occupied by the calendar, assuming compressed references,
+     * which is two int and two long values per stored day.
+     */
+    public long getMemoryFootprint() {
+        return OBJECT_SIZE + 4 * ARRAY_HEADER_SIZE + 8L * weights.length + 16L * missingWeights.length;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.aziubin;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy ascending enumeration of working days in a range as epoch days.
+ * Regular weekend days are skipped by weekend mask arithmetic and holidays are skipped
+ * by merging with the sorted holiday array, so each working day costs a few operations.
+ * The range is split in halves for parallel streams, the holiday position of the second half
+ * is found by binary search, and the exact number of working days is known for each part.
+ */
+final class WorkdaySpliterator implements Spliterator.OfInt {
+
+    /**
+     * The shortest range in days, which is split for parallel processing.
+     */
+    static final long MIN_SPLIT_DAYS = 256;
+
+    private final WeekendRule weekendRule;
+    private final HolidayIndex holidays;
+
+    /**
+     * The next day to consider and the inclusive end of the range.
+     */
+    private long next;
+    private final long end;
+
+    /**
+     * The index of the first holiday, which is not before the next day.
+     */
+    private int holidayIdx;
+
+    WorkdaySpliterator(WeekendRule weekendRule, HolidayIndex holidays, long startEpochDay, long endEpochDay) {
+        this.weekendRule = weekendRule;
+        this.holidays = holidays;
+        this.next = startEpochDay;
+        // A range without weekdays is empty, so it is not scanned day by day.
+        this.end = endEpochDay >= startEpochDay && 0 == weekendRule.getWeekdays(startEpochDay, endEpochDay - startEpochDay + 1)
+                ? startEpochDay - 1 : endEpochDay;
+        this.holidayIdx = holidays.rank(startEpochDay);
+    }
+
+    /**
+     * @param weekendRule regular non-working days.
+     * @param holidays holidays to skip.
+     * @param startDate inclusive start date of the range.
+     * @param endDate inclusive end date of the range.
+     * @return sequential stream of epoch days of working days in ascending order.
+     */
+    static IntStream stream(WeekendRule weekendRule, HolidayIndex holidays, LocalDate startDate, LocalDate endDate) {
+        long startEpochDay = startDate.toEpochDay();
+        long endEpochDay = endDate.toEpochDay();
+        if (startEpochDay > endEpochDay) {
+            throw new IllegalArgumentException("Start date of the range is after the end date.");
+        } else if (startEpochDay < Integer.MIN_VALUE || endEpochDay > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Range is out of epoch day range.");
+        }
+        return StreamSupport.intStream(new WorkdaySpliterator(weekendRule, holidays, startEpochDay, endEpochDay), false);
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        int[] days = holidays.days;
+        while (next <= end) {
+            long day = next;
+            if (weekendRule instanceof WeekendMask && weekendRule.isWeekendDay(day)) {
+                day = ((WeekendMask) weekendRule).getNextWeekday(day, 1);
+                if (day > end) {
+                    next = day;
+                    return false;
+                }
+            } else if (weekendRule.isWeekendDay(day)) {
+                // Weekend days changing over time are skipped one by one.
+                do {
+                    ++day;
+                } while (day <= end && weekendRule.isWeekendDay(day));
+                if (day > end) {
+                    next = day;
+                    return false;
+                }
+            }
+            next = day + 1;
+            while (holidayIdx < days.length && days[holidayIdx] < day) {
+                ++holidayIdx;
+            }
+            if (holidayIdx < days.length && days[holidayIdx] == day) {
+                ++holidayIdx;
+                continue;
+            }
+            action.accept((int) day);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+        if (end - next < MIN_SPLIT_DAYS) {
+            return null;
+        }
+        long middle = next + (end - next) / 2;
+        WorkdaySpliterator prefix = new WorkdaySpliterator(weekendRule, holidays, next, middle);
+        prefix.holidayIdx = holidayIdx;
+        next = middle + 1;
+        holidayIdx = holidays.rank(next);
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        if (next > end) {
+            return 0;
+        }
+        return weekendRule.getWeekdays(next, end - next + 1) - holidays.count(next, end);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE | SIZED | SUBSIZED;
+    }
+
+    /**
+     * Epoch days are in natural order.
+     */
+    @Override
+    public Comparator<? super Integer> getComparator() {
+        return null;
+    }
+
+}
@@ -1,7 +1,12 @@
 package com.aziubin;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 /**
  * Workdays interface representing the following core functionality:<br>
@@ -20,6 +25,150 @@ public interface Workdays {
      */
     long getWorkdays(LocalDate startDate, LocalDate endDate);
 
+    /**
+     * Calculate the number of workdays for many ranges at once,
+     * avoiding per range boxing of dates for bulk callers.
+     * Implementations are expected to override this method when they can
+     * amortize the work across ranges.
+     * @param startEpochDays inclusive start epoch days of the ranges.
+     * @param endEpochDays inclusive end epoch days of the ranges, having the same length as startEpochDays.
+     * @param result receives the number of workdays for each range, having at least the same length.
+     */
+    default void getWorkdays(int[] startEpochDays, int[] endEpochDays, long[] result) {
+        if (startEpochDays.length != endEpochDays.length || result.length < startEpochDays.length) {
+            throw new IllegalArgumentException("Ranges and result arrays do not match.");
+        }
+        for (int i = 0; i < startEpochDays.length; ++i) {
+            result[i] = getWorkdays(LocalDate.ofEpochDay(startEpochDays[i]), LocalDate.ofEpochDay(endEpochDays[i]));
+        }
+    }
+
+    /**
+     * Calculate the number of workdays for many ranges at once.
+     * @param packedRanges ranges created by {@link #packRange(int, int)}.
+     * @param result receives the number of workdays for each range, having at least the same length.
+     */
+    default void getWorkdays(long[] packedRanges, long[] result) {
+        int[] startEpochDays = new int[packedRanges.length];
+        int[] endEpochDays = new int[packedRanges.length];
+        for (int i = 0; i < packedRanges.length; ++i) {
+            startEpochDays[i] = (int) (packedRanges[i] >> 32);
+            endEpochDays[i] = (int) packedRanges[i];
+        }
+        getWorkdays(startEpochDays, endEpochDays, result);
+    }
+
+    /**
+     * @param startEpochDay inclusive start epoch day of the range.
+     * @param endEpochDay inclusive end epoch day of the range.
+     * @return the range packed into a single long value, start epoch day in high 32 bits.
+     */
+    static long packRange(int startEpochDay, int endEpochDay) {
+        return (long) startEpochDay << 32 | endEpochDay & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Enumerate working days in a range lazily, for example, to schedule jobs.
+     * The stream supports parallel processing with even split of the range.
+     * Default implementation obtains holidays through {@link #save(DateWriter)},
+     * implementations are expected to override it with their own sorted holidays.
+     * @param startDate inclusive start date of the range.
+     * @param endDate inclusive end date of the range.
+     *
+     * @return sequential stream of epoch days of working days in ascending order,
+     * which reflects holidays at the moment of the call.
+     */
+    default IntStream streamWorkdays(LocalDate startDate, LocalDate endDate) {
+        WeekendRule weekendRule = getWeekendRule();
+        ArrayDateWriter writer = new ArrayDateWriter();
+        try {
+            save(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int[] days = writer.toArray();
+        return WorkdaySpliterator.stream(weekendRule, HolidayIndex.of(days, days.length, weekendRule), startDate, endDate);
+    }
+
+    /**
+     * Find the date, which is the specified number of workdays after the date.
+     * Default implementation searches the result with O(log(workdays)) calls of
+     * {@link #getWorkdays(LocalDate, LocalDate)}, implementations are expected to override it.
+     * @param date the date from which to start counting, which itself is not counted.
+     * @param workdays the number of workdays to move forward, or backward when negative.
+     *
+     * @return the workday, such that the range after the date up to the result inclusive
+     * contains specified number of workdays, or the date itself for zero workdays.
+     * @throws IllegalArgumentException when there are not enough workdays up to the limit of supported dates,
+     * for example, when each day of the week is a regular non-working day.
+     */
+    default LocalDate addWorkdays(LocalDate date, long workdays) {
+        if (0 == workdays) {
+            return date;
+        }
+        boolean isForward = workdays > 0;
+        long target = Math.abs(workdays);
+        // Exponential search of the upper bound of the distance, then binary search within it.
+        // Invariant: range of low days contains less than target workdays, range of high days contains enough.
+        // The distance is limited by supported dates, so the search ends even when there are no workdays.
+        long limit = isForward ? LocalDate.MAX.toEpochDay() - date.toEpochDay() : date.toEpochDay() - LocalDate.MIN.toEpochDay();
+        long low = 0;
+        long high = Math.min(target, limit);
+        long found;
+        while ((found = isForward ? getWorkdays(date.plusDays(1), date.plusDays(high))
+                : getWorkdays(date.minusDays(high), date.minusDays(1))) < target) {
+            // A week without workdays can be caused by holidays, but not when each day is a weekend day.
+            if (0 == found && high >= DayOfWeek.values().length && DayOfWeek.values().length == getWeekendDays().size()) {
+                throw new IllegalArgumentException("Each day of the week is a regular non-working day.");
+            } else if (high == limit) {
+                throw new IllegalArgumentException(0 == found ? "Each day of the week is a regular non-working day."
+                        : "The number of workdays exceeds the range of supported dates.");
+            }
+            low = high;
+            high = Math.min(limit, 2 * high);
+        }
+        while (high - low > 1) {
+            long middle = low + (high - low) / 2;
+            if ((isForward ? getWorkdays(date.plusDays(1), date.plusDays(middle))
+                    : getWorkdays(date.minusDays(middle), date.minusDays(1))) < target) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return isForward ? date.plusDays(high) : date.minusDays(high);
+    }
+
+    /**
+     * Find the date, which is the specified number of workdays before the date.
+     * @param date the date from which to start counting backward, which itself is not counted.
+     * @param workdays the number of workdays to move backward, or forward when negative.
+     *
+     * @return the workday, such that the range from the result inclusive up to the date
+     * contains specified number of workdays, or the date itself for zero workdays.
+     */
+    default LocalDate subtractWorkdays(LocalDate date, long workdays) {
+        return addWorkdays(date, Math.negateExact(workdays));
+    }
+
+    /**
+     * Usually non-working days of the week are Saturday and Sunday, which are assumed by default,
+     * implementations supporting customized weekend days are expected to override this method.
+     * @return regular non-working days of the week, which are never counted as workdays,
+     * or the latest ones, when weekend days change over time.
+     */
+    default Set<DayOfWeek> getWeekendDays() {
+        return EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+    }
+
+    /**
+     * @return regular non-working days, which are never counted as workdays,
+     * including changes of weekend days over time, if any.
+     */
+    default WeekendRule getWeekendRule() {
+        return WeekendMask.of(getWeekendDays());
+    }
+
     /**
      * @param holidayDate the date representing non-working day because of holiday.
      * 
@@ -28,6 +177,43 @@ public interface Workdays {
      */
     boolean addHoliday(LocalDate holidayDate);
 
+    /**
+     * Implementations supporting modification of holidays are expected to override this method.
+     * @param holidayDate the date, which is not a holiday anymore.
+     *
+     * @return true as an indication that the holiday date is removed
+     * and not assumed for further calculations.
+     * @throws UnsupportedOperationException when holidays cannot be removed.
+     */
+    default boolean removeHoliday(LocalDate holidayDate) {
+        throw new UnsupportedOperationException("Holidays cannot be removed.");
+    }
+
+    /**
+     * Incrementally update holidays with a batch of changes, for example, from a continuous feed.
+     * Removals are applied before additions, so a date present in both is a holiday afterwards.
+     * Implementations are expected to update holiday index in place instead of rebuilding it.
+     * @param additions the reader, which provides new holiday dates.
+     * @param removals the reader, which provides dates, which are not holidays anymore.
+     *
+     * @return the number of changes, which actually modified holidays.
+     * @throws DateReaderException
+     */
+    default long applyChanges(DateReader additions, DateReader removals) throws DateReaderException {
+        long result = 0;
+        for (LocalDate date = removals.read(); null != date; date = removals.read()) {
+            if (removeHoliday(date)) {
+                ++result;
+            }
+        }
+        for (LocalDate date = additions.read(); null != date; date = additions.read()) {
+            if (addHoliday(date)) {
+                ++result;
+            }
+        }
+        return result;
+    }
+
     /**
      * @param reader the instance of reader interface, which acts as a source of holiday entries.
      * 
@@ -36,6 +222,18 @@ public interface Workdays {
      */
     long load(DateReader reader) throws DateReaderException;
 
+    /**
+     * Bulk alternative of {@link #load(DateReader)}, which reads all holiday entries at once
+     * and is expected to build holiday index in one pass instead of adding entries one by one.
+     * @param reader the instance of reader interface, which acts as a source of holiday entries.
+     *
+     * @return the number of holiday entries successfully loaded, the same as load() returns.
+     * @throws DateReaderException
+     */
+    default long loadAll(DateReader reader) throws DateReaderException {
+        return load(reader);
+    }
+
     /**
      * @param writer the instance of writer interface, which acts as a target to save holiday entries.
      * 
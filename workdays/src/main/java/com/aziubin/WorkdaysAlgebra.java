@@ -0,0 +1,185 @@
+package com.aziubin;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Set operations on calendars, for example, union of national and company holidays,
+ * intersection for cross-border settlement or difference for change reports.
+ * Each operation is a single linear merge of sorted holidays of both calendars,
+ * where each day is checked against weekend days of both calendars, so calendars
+ * having different weekend days are combined by the non-working days they actually have.
+ * Resulting calendars are independent thread-safe calendars having holidays at the moment of the operation,
+ * which can be modified afterwards without affecting the operands, and vice versa.
+ * Weekend days changing over time are not supported and cause IllegalArgumentException.
+ */
+public final class WorkdaysAlgebra {
+
+    /**
+     * The number of days buffered before bulk write of the difference.
+     */
+    private static final int WRITE_CHUNK_SIZE = 1024;
+
+    private enum Operation {
+        UNION {
+            @Override
+            boolean isHoliday(boolean isFirstHoliday, boolean isSecondHoliday) {
+                return isFirstHoliday || isSecondHoliday;
+            }
+        },
+        INTERSECTION {
+            @Override
+            boolean isHoliday(boolean isFirstHoliday, boolean isSecondHoliday) {
+                return isFirstHoliday && isSecondHoliday;
+            }
+        },
+        DIFFERENCE {
+            @Override
+            boolean isHoliday(boolean isFirstHoliday, boolean isSecondHoliday) {
+                return isFirstHoliday && !isSecondHoliday;
+            }
+        };
+
+        /**
+         * @param isFirstHoliday true when the day is non-working in the first calendar.
+         * @param isSecondHoliday true when the day is non-working in the second calendar.
+         * @return true when the day is non-working in the result.
+         */
+        abstract boolean isHoliday(boolean isFirstHoliday, boolean isSecondHoliday);
+    }
+
+    private WorkdaysAlgebra() {}
+
+    private static WeekendMask getWeekendMask(Workdays workdays) {
+        WeekendRule weekendRule = workdays.getWeekendRule();
+        if (!(weekendRule instanceof WeekendMask)) {
+            throw new IllegalArgumentException("Weekend days changing over time are not supported by set operations.");
+        }
+        return (WeekendMask) weekendRule;
+    }
+
+    /**
+     * @return sorted holidays, which are shared with the calendar when it is immutable or copy-on-write.
+     */
+    private static HolidayIndex getHolidays(Workdays workdays, WeekendMask weekendMask) throws IOException {
+        if (workdays instanceof ConcurrentWorkdays) {
+            return ((ConcurrentWorkdays) workdays).holidays.get();
+        } else if (workdays instanceof WorkdaysSnapshot) {
+            return ((WorkdaysSnapshot) workdays).holidays;
+        }
+        ArrayDateWriter writer = new ArrayDateWriter();
+        workdays.save(writer);
+        int[] days = writer.toArray();
+        return HolidayIndex.of(days, days.length, weekendMask);
+    }
+
+    private static Workdays apply(Operation operation, Workdays first, Workdays second, WeekendMask weekendMask) throws IOException {
+        WeekendMask firstWeekendMask = getWeekendMask(first);
+        WeekendMask secondWeekendMask = getWeekendMask(second);
+        int[] a = getHolidays(first, firstWeekendMask).days;
+        int[] b = getHolidays(second, secondWeekendMask).days;
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int length = 0;
+        while (i < a.length || j < b.length) {
+            int day = j == b.length || i < a.length && a[i] <= b[j] ? a[i] : b[j];
+            boolean isFirstHoliday = i < a.length && a[i] == day;
+            boolean isSecondHoliday = j < b.length && b[j] == day;
+            i += isFirstHoliday ? 1 : 0;
+            j += isSecondHoliday ? 1 : 0;
+            if (operation.isHoliday(isFirstHoliday || firstWeekendMask.isWeekendDay(day), isSecondHoliday || secondWeekendMask.isWeekendDay(day))
+                    && !weekendMask.isWeekendDay(day)) {
+                result[length++] = day;
+            }
+        }
+        HolidayIndex holidays = 0 == length ? HolidayIndex.EMPTY : new HolidayIndex(Arrays.copyOf(result, length));
+        return new ConcurrentWorkdays(weekendMask, holidays);
+    }
+
+    /**
+     * @return the calendar, where a day is non-working when it is non-working in any of calendars,
+     * having weekend days of both calendars.
+     */
+    public static Workdays union(Workdays first, Workdays second) throws IOException {
+        WeekendMask weekendMask = WeekendMask.of(getWeekendMask(first).mask | getWeekendMask(second).mask);
+        return apply(Operation.UNION, first, second, weekendMask);
+    }
+
+    /**
+     * A holiday of one calendar, which is a weekend day of the other calendar, is a holiday of the result.
+     * @return the calendar, where a day is non-working when it is non-working in both calendars,
+     * having common weekend days.
+     */
+    public static Workdays intersection(Workdays first, Workdays second) throws IOException {
+        WeekendMask weekendMask = WeekendMask.of(getWeekendMask(first).mask & getWeekendMask(second).mask);
+        return apply(Operation.INTERSECTION, first, second, weekendMask);
+    }
+
+    /**
+     * @return the calendar having weekend days of the first calendar and its holidays,
+     * which are working days in the second calendar.
+     */
+    public static Workdays difference(Workdays first, Workdays second) throws IOException {
+        return apply(Operation.DIFFERENCE, first, second, getWeekendMask(first));
+    }
+
+    /**
+     * Write the changes of holidays between two versions of a calendar in a single merge pass.
+     * Only holidays are compared, so changes of weekend days themselves are not reported.
+     * @param from the original calendar.
+     * @param to the changed calendar.
+     * @param added receives holidays of the changed calendar, which are working days in the original one.
+     * @param removed receives holidays of the original calendar, which are working days in the changed one.
+     * @return the number of written days, both writers are committed afterwards.
+     */
+    public static long diff(Workdays from, Workdays to, DateWriter added, DateWriter removed) throws IOException {
+        WeekendMask fromWeekendMask = getWeekendMask(from);
+        WeekendMask toWeekendMask = getWeekendMask(to);
+        int[] a = getHolidays(from, fromWeekendMask).days;
+        int[] b = getHolidays(to, toWeekendMask).days;
+        int[] addedChunk = new int[WRITE_CHUNK_SIZE];
+        int[] removedChunk = new int[WRITE_CHUNK_SIZE];
+        int addedLength = 0;
+        int removedLength = 0;
+        long result = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || i < a.length && a[i] < b[j]) {
+                if (!toWeekendMask.isWeekendDay(a[i])) {
+                    removedChunk[removedLength++] = a[i];
+                }
+                ++i;
+            } else if (i == a.length || b[j] < a[i]) {
+                if (!fromWeekendMask.isWeekendDay(b[j])) {
+                    addedChunk[addedLength++] = b[j];
+                }
+                ++j;
+            } else {
+                ++i;
+                ++j;
+            }
+            if (WRITE_CHUNK_SIZE == addedLength) {
+                added.write(addedChunk, 0, addedLength);
+                result += addedLength;
+                addedLength = 0;
+            }
+            if (WRITE_CHUNK_SIZE == removedLength) {
+                removed.write(removedChunk, 0, removedLength);
+                result += removedLength;
+                removedLength = 0;
+            }
+        }
+        if (0 != addedLength) {
+            added.write(addedChunk, 0, addedLength);
+        }
+        if (0 != removedLength) {
+            removed.write(removedChunk, 0, removedLength);
+        }
+        added.commit();
+        removed.commit();
+        return result + addedLength + removedLength;
+    }
+
+}
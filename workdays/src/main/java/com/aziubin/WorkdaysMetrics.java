@@ -0,0 +1,48 @@
+package com.aziubin;
+
+/**
+ * Service provider interface to collect metrics of Workdays implementations,
+ * intended to be used through MeteredWorkdays decorator.
+ * All methods are no-op by default, so implementations override only what they need.
+ * Implementations are expected to be thread-safe and allocation-free, as queries are hot path.
+ */
+public interface WorkdaysMetrics {
+
+    /**
+     * Metrics, which do not record anything, so decorated calls go straight to the delegate.
+     */
+    WorkdaysMetrics NO_OP = new WorkdaysMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * @return false when nothing is recorded, so callers can skip measurement at all.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @param nanos the duration of the query.
+     * @param rangeDays the number of days in the queried range.
+     * @param holidays the number of holidays within the range.
+     */
+    default void recordQuery(long nanos, long rangeDays, long holidays) {}
+
+    /**
+     * @param entries the number of holiday entries loaded.
+     * @param bytes the number of bytes parsed or zero, when the reader does not report it.
+     * @param nanos the duration of the load.
+     */
+    default void recordLoad(long entries, long bytes, long nanos) {}
+
+    /**
+     * @param entries the number of holiday entries saved.
+     * @param nanos the duration of the save.
+     */
+    default void recordSave(long entries, long nanos) {}
+
+}
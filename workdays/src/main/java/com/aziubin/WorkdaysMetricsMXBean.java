@@ -0,0 +1,53 @@
+package com.aziubin;
+
+/**
+ * Management interface of HistogramWorkdaysMetrics for local inspection, for example, with JConsole.
+ * Durations are in nanoseconds.
+ */
+public interface WorkdaysMetricsMXBean {
+
+    long getQueryCount();
+
+    double getQueryLatencyMean();
+
+    long getQueryLatencyP50();
+
+    long getQueryLatencyP99();
+
+    long getQueryLatencyP999();
+
+    long getQueryLatencyMax();
+
+    double getRangeDaysMean();
+
+    long getRangeDaysP50();
+
+    long getRangeDaysP99();
+
+    double getHolidaysPerQueryMean();
+
+    long getHolidaysPerQueryP99();
+
+    long getLoadedEntries();
+
+    long getLoadedBytes();
+
+    long getLoadNanos();
+
+    /**
+     * @return loaded holiday entries per second over all loads.
+     */
+    double getLoadThroughput();
+
+    long getSavedEntries();
+
+    long getSaveNanos();
+
+    /**
+     * @return saved holiday entries per second over all saves.
+     */
+    double getSaveThroughput();
+
+    void reset();
+
+}
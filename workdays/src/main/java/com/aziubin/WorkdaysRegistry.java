@@ -0,0 +1,142 @@
+package com.aziubin;
+
+import java.time.DayOfWeek;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of calendars keyed by identifier, for example, country, region or business unit.
+ * Holiday storage is interned, so calendars having equal holidays share a single
+ * sorted epoch day array, and weekend masks are interned by WeekendMask itself.
+ * Calendars can be composed of a base calendar and overlays, for example, national holidays
+ * and regional ones. Registered calendars are thread-safe, lookup is a single hash map access,
+ * so it is cheap enough for request processing.
+ */
+public class WorkdaysRegistry {
+    private final ConcurrentMap<String, Registration> calendars = new ConcurrentHashMap<>();
+
+    /**
+     * Canonical holidays of registered calendars keyed by content, so interning is a single hash map access.
+     * Entries are counted by registrations, and removed when the last calendar sharing them
+     * is replaced or removed.
+     */
+    final ConcurrentMap<HolidayIndex, PooledHolidays> pool = new ConcurrentHashMap<>();
+
+    private static final class Registration {
+        final ConcurrentWorkdays calendar;
+
+        /**
+         * Canonical holidays at the moment of registration, which are released with the calendar
+         * irrespective to its modifications.
+         */
+        final HolidayIndex holidays;
+
+        Registration(ConcurrentWorkdays calendar, HolidayIndex holidays) {
+            this.calendar = calendar;
+            this.holidays = holidays;
+        }
+    }
+
+    static final class PooledHolidays {
+        final HolidayIndex holidays;
+        int references;
+
+        PooledHolidays(HolidayIndex holidays) {
+            this.holidays = holidays;
+        }
+    }
+
+    /**
+     * Find equal holidays among registered calendars, so storage is shared with them.
+     * Content hash codes are cached, so the lookup is cheap even for large calendars.
+     * @return canonical instance equal to specified holidays, which must be released afterwards.
+     */
+    private HolidayIndex intern(HolidayIndex holidays) {
+        return pool.compute(holidays, (key, pooled) -> {
+            PooledHolidays result = null == pooled ? new PooledHolidays(key) : pooled;
+            ++result.references;
+            return result;
+        }).holidays;
+    }
+
+    private void release(Registration registration) {
+        if (null != registration) {
+            pool.computeIfPresent(registration.holidays, (key, pooled) -> 0 == --pooled.references ? null : pooled);
+        }
+    }
+
+    private Workdays put(String id, WeekendMask weekendMask, HolidayIndex holidays) {
+        HolidayIndex interned = intern(holidays);
+        ConcurrentWorkdays calendar = new ConcurrentWorkdays(weekendMask, interned);
+        release(calendars.put(id, new Registration(calendar, interned)));
+        return calendar;
+    }
+
+    private ConcurrentWorkdays getCalendar(String id) {
+        Registration result = calendars.get(id);
+        if (null == result) {
+            throw new IllegalArgumentException("Unknown calendar: " + id);
+        }
+        return result.calendar;
+    }
+
+    /**
+     * Register or replace the calendar.
+     * @param id identifier of the calendar.
+     * @param weekendSet customized set of weekend days.
+     * @param reader the reader, which provides holiday days.
+     * @return registered calendar.
+     * @throws DateReaderException
+     */
+    public Workdays register(String id, Set<DayOfWeek> weekendSet, DateReader reader) throws DateReaderException {
+        WeekendMask weekendMask = WeekendMask.of(weekendSet);
+        int[] days = reader.readEpochDays();
+        return put(id, weekendMask, HolidayIndex.of(days, days.length, weekendMask));
+    }
+
+    /**
+     * Register or replace the calendar composed of the base calendar and overlays.
+     * Composed calendar assumes weekend days of the base calendar and holidays of all calendars,
+     * as they are at the moment of composition.
+     * @param id identifier of the composed calendar.
+     * @param baseId identifier of already registered base calendar.
+     * @param overlayIds identifiers of already registered calendars, which add holidays.
+     * @return registered calendar.
+     */
+    public Workdays compose(String id, String baseId, String... overlayIds) {
+        ConcurrentWorkdays base = getCalendar(baseId);
+        HolidayIndex holidays = base.holidays.get();
+        for (String overlayId : overlayIds) {
+            holidays = holidays.union(getCalendar(overlayId).holidays.get().withoutWeekend(base.weekendMask));
+        }
+        return put(id, base.weekendMask, holidays);
+    }
+
+    /**
+     * @param id identifier of the calendar.
+     * @return registered calendar or null when there is no calendar with specified identifier.
+     */
+    public Workdays get(String id) {
+        Registration registration = calendars.get(id);
+        return null == registration ? null : registration.calendar;
+    }
+
+    /**
+     * @param id identifier of the calendar.
+     * @return removed calendar or null when there is no calendar with specified identifier.
+     */
+    public Workdays remove(String id) {
+        Registration registration = calendars.remove(id);
+        release(registration);
+        return null == registration ? null : registration.calendar;
+    }
+
+    /**
+     * @return the number of registered calendars.
+     */
+    public int size() {
+        return calendars.size();
+    }
+
+}
@@ -0,0 +1,294 @@
+package com.aziubin;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable query-optimized copy of any Workdays implementation, intended for fast service startup.
+ * The snapshot holds the weekend mask, sorted epoch days of holidays and the number of holidays
+ * before each block of 32 days, so the number of holidays before a day is found by a lookup
+ * and a short search within the block.
+ * The snapshot is written to a file as is and mapped back in one shot,
+ * copying whole arrays without any per entry parsing.
+ * Methods modifying holidays throw UnsupportedOperationException.
+ */
+public final class WorkdaysSnapshot implements Workdays {
+    static final byte[] MAGIC = {'W', 'D', 'S', 'N'};
+    static final byte VERSION = 1;
+
+    /**
+     * Magic number, version, weekend mask, two bytes of padding, then the number of holidays,
+     * epoch day of the first block and the number of block counts as int values.
+     */
+    static final int HEADER_LENGTH = MAGIC.length + 4 + 3 * Integer.BYTES;
+
+    static final int BLOCK_DAYS_BITS = 5;
+
+    final WeekendMask weekendMask;
+    final HolidayIndex holidays;
+
+    /**
+     * Epoch day, from which blocks start.
+     */
+    final int blockStart;
+
+    /**
+     * The number of holidays before each block and after the last block.
+     */
+    final int[] blockRanks;
+
+    private WorkdaysSnapshot(WeekendMask weekendMask, HolidayIndex holidays, int blockStart, int[] blockRanks) {
+        this.weekendMask = weekendMask;
+        this.holidays = holidays;
+        this.blockStart = blockStart;
+        this.blockRanks = blockRanks;
+    }
+
+    /**
+     * @param weekendMask regular non-working days of the week.
+     * @param holidays holidays, which do not overlap with weekend days.
+     */
+    WorkdaysSnapshot(WeekendMask weekendMask, HolidayIndex holidays) {
+        this.weekendMask = weekendMask;
+        this.holidays = holidays;
+        int[] days = holidays.days;
+        if (0 == days.length) {
+            blockStart = 0;
+            blockRanks = new int[] {0};
+            return;
+        }
+        blockStart = days[0];
+        int blocks = (int) (((long) days[days.length - 1] - blockStart >>> BLOCK_DAYS_BITS) + 1);
+        blockRanks = new int[blocks + 1];
+        int rank = 0;
+        for (int block = 0; block <= blocks; ++block) {
+            long blockEnd = blockStart + ((long) block << BLOCK_DAYS_BITS);
+            while (rank < days.length && days[rank] < blockEnd) {
+                ++rank;
+            }
+            blockRanks[block] = rank;
+        }
+    }
+
+    /**
+     * Freeze current holidays of any Workdays implementation having fixed weekend days.
+     * @param workdays the calendar, which holidays are saved into the snapshot.
+     * @return the snapshot giving the same results as the calendar.
+     * @throws IOException
+     */
+    public static WorkdaysSnapshot of(Workdays workdays) throws IOException {
+        if (workdays instanceof WorkdaysSnapshot) {
+            return (WorkdaysSnapshot) workdays;
+        }
+        WeekendRule weekendRule = workdays.getWeekendRule();
+        if (!(weekendRule instanceof WeekendMask)) {
+            throw new IllegalArgumentException("Weekend days changing over time are not supported by snapshot.");
+        }
+        WeekendMask weekendMask = (WeekendMask) weekendRule;
+        ArrayDateWriter writer = new ArrayDateWriter();
+        workdays.save(writer);
+        int[] days = writer.toArray();
+        return new WorkdaysSnapshot(weekendMask, HolidayIndex.of(days, days.length, weekendMask));
+    }
+
+    /**
+     * Read the snapshot from a file written by {@link #write(String)}.
+     * The file is memory mapped and arrays are copied out of the mapped buffer at once.
+     * @param filename
+     * @return
+     * @throws IOException when the file is not a snapshot.
+     */
+    public static WorkdaysSnapshot map(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);) {
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        }
+    }
+
+    static WorkdaysSnapshot read(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_LENGTH) {
+            throw new IOException("Unexpected header of workdays snapshot.");
+        }
+        for (byte value : MAGIC) {
+            if (value != buffer.get()) {
+                throw new IOException("Unexpected header of workdays snapshot.");
+            }
+        }
+        if (VERSION != buffer.get()) {
+            throw new IOException("Unsupported version of workdays snapshot.");
+        }
+        WeekendMask weekendMask = WeekendMask.of(buffer.get() & (1 << WeekendMask.DAYS_IN_WEEK) - 1);
+        buffer.position(buffer.position() + 2);
+        int length = buffer.getInt();
+        int blockStart = buffer.getInt();
+        int blocks = buffer.getInt();
+        if (length < 0 || blocks < 1 || buffer.remaining() != ((long) length + blocks) * Integer.BYTES) {
+            throw new IOException("Unexpected length of workdays snapshot.");
+        }
+        IntBuffer ints = buffer.asIntBuffer();
+        int[] days = new int[length];
+        ints.get(days);
+        int[] blockRanks = new int[blocks];
+        ints.get(blockRanks);
+        if (!isValid(weekendMask, days, blockStart, blockRanks)) {
+            throw new IOException("Corrupted content of workdays snapshot.");
+        }
+        return new WorkdaysSnapshot(weekendMask, 0 == length ? HolidayIndex.EMPTY : new HolidayIndex(days), blockStart, blockRanks);
+    }
+
+    /**
+     * Verify in one linear pass, that holidays are strictly ascending weekdays and block counts
+     * are the ones built by the constructor, so corrupted files are not used for counting.
+     */
+    private static boolean isValid(WeekendMask weekendMask, int[] days, int blockStart, int[] blockRanks) {
+        if (0 == days.length) {
+            return 1 == blockRanks.length && 0 == blockRanks[0];
+        } else if (blockStart != days[0] || blockRanks.length != ((long) days[days.length - 1] - blockStart >>> BLOCK_DAYS_BITS) + 2) {
+            return false;
+        }
+        for (int i = 0; i < days.length; ++i) {
+            if (i > 0 && days[i - 1] >= days[i] || weekendMask.isWeekendDay(days[i])) {
+                return false;
+            }
+        }
+        int rank = 0;
+        for (int block = 0; block < blockRanks.length; ++block) {
+            long blockEnd = blockStart + ((long) block << BLOCK_DAYS_BITS);
+            while (rank < days.length && days[rank] < blockEnd) {
+                ++rank;
+            }
+            if (blockRanks[block] != rank) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the snapshot to a file, which can be mapped back by {@link #map(String)}.
+     * @param filename
+     * @throws IOException
+     */
+    public void write(String filename) throws IOException {
+        try (OutputStream stream = new FileOutputStream(filename);) {
+            write(stream);
+        }
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        int[] days = holidays.days;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + (days.length + blockRanks.length) * Integer.BYTES);
+        buffer.put(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) weekendMask.mask);
+        buffer.position(buffer.position() + 2);
+        buffer.putInt(days.length);
+        buffer.putInt(blockStart);
+        buffer.putInt(blockRanks.length);
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.put(days);
+        ints.put(blockRanks);
+        stream.write(buffer.array());
+        stream.flush();
+    }
+
+    /**
+     * @return the number of holidays strictly before specified epoch day.
+     */
+    int rank(long epochDay) {
+        long block = epochDay - blockStart >> BLOCK_DAYS_BITS;
+        if (block < 0) {
+            return 0;
+        } else if (block >= blockRanks.length - 1) {
+            return blockRanks[blockRanks.length - 1];
+        }
+        int[] days = holidays.days;
+        int result = blockRanks[(int) block];
+        int end = blockRanks[(int) block + 1];
+        while (result < end && days[result] < epochDay) {
+            ++result;
+        }
+        return result;
+    }
+
+    @Override
+    public long getWorkdays(LocalDate startDate, LocalDate endDate) {
+        long startEpochDay = startDate.toEpochDay();
+        long endEpochDay = endDate.toEpochDay();
+        long rangeDays = endEpochDay - startEpochDay + 1;  // compensate excluded end date.
+        if (0 > rangeDays) {
+            throw new IllegalArgumentException("Start date of the range is after the end date.");
+        }
+        return weekendMask.getWeekdays(startEpochDay, rangeDays) - (rank(endEpochDay + 1) - rank(startEpochDay));
+    }
+
+    @Override
+    public void getWorkdays(int[] startEpochDays, int[] endEpochDays, long[] result) {
+        if (startEpochDays.length != endEpochDays.length || result.length < startEpochDays.length) {
+            throw new IllegalArgumentException("Ranges and result arrays do not match.");
+        }
+        for (int i = 0; i < startEpochDays.length; ++i) {
+            long rangeDays = (long) endEpochDays[i] - startEpochDays[i] + 1;
+            if (0 > rangeDays) {
+                throw new IllegalArgumentException("Start date of the range is after the end date.");
+            }
+            result[i] = weekendMask.getWeekdays(startEpochDays[i], rangeDays) - (rank(endEpochDays[i] + 1L) - rank(startEpochDays[i]));
+        }
+    }
+
+    @Override
+    public LocalDate addWorkdays(LocalDate date, long workdays) {
+        return LocalDate.ofEpochDay(holidays.addWorkdays(weekendMask, date.toEpochDay(), workdays));
+    }
+
+    @Override
+    public IntStream streamWorkdays(LocalDate startDate, LocalDate endDate) {
+        return WorkdaySpliterator.stream(weekendMask, holidays, startDate, endDate);
+    }
+
+    @Override
+    public Set<DayOfWeek> getWeekendDays() {
+        return weekendMask.toSet();
+    }
+
+    @Override
+    public boolean addHoliday(LocalDate holidayDate) {
+        throw new UnsupportedOperationException("Workdays snapshot is immutable.");
+    }
+
+    @Override
+    public boolean removeHoliday(LocalDate holidayDate) {
+        throw new UnsupportedOperationException("Workdays snapshot is immutable.");
+    }
+
+    @Override
+    public long applyChanges(DateReader additions, DateReader removals) {
+        throw new UnsupportedOperationException("Workdays snapshot is immutable.");
+    }
+
+    @Override
+    public long load(DateReader reader) {
+        throw new UnsupportedOperationException("Workdays snapshot is immutable.");
+    }
+
+    @Override
+    public long save(DateWriter writer) throws IOException {
+        int[] days = holidays.days;
+        writer.write(days, 0, days.length);
+        writer.commit();
+        return days.length;
+    }
+
+}
@@ -1,17 +1,39 @@
 package com.aziubin;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.DateTimeException;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.security.SecureRandom;
 import org.junit.jupiter.api.Test;
 
@@ -182,4 +204,1103 @@ public class WorkDayTestCase
         assertEquals("[\"2001-12-21\",\"2015-12-21\",\"2003-12-21\",\"2011-12-21\",\"2001-12-21\"]", jsonStr);
     }
 
+    /**
+     * Verify that epoch day implementation, with and without precomputed window,
+     * gives the same results as the tree based implementation for random holidays and ranges.
+     */
+    @Test
+    public void epochDayWorkdays() throws DateReaderException, IOException
+    {
+        SecureRandom random = new SecureRandom();
+        Set<DayOfWeek> weekendSet = EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY);
+        TreeSetWorkdays expected = new TreeSetWorkdays(new RandomDateReader(NUMBER_OF_HOLIDAYS), weekendSet);
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        expected.save(new StreamDateWriter(oStream));
+
+        EpochDayWorkdays plain = new EpochDayWorkdays(weekendSet);
+        EpochDayWorkdays windowed = new EpochDayWorkdays(weekendSet, LocalDate.of(2005, 1, 1), LocalDate.of(2015, 12, 31));
+        assertEquals(expected.holidaySet.size(), plain.load(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray()))));
+        windowed.load(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray())));
+
+        for (int i = 0; i < NUMBER_OF_RANDOM_TEST; i++) {
+            try {
+                LocalDate startDate = RandomDateReader.getRandomDate(random);
+                LocalDate endDate = RandomDateReader.getRandomDate(random);
+                if (startDate.isAfter(endDate)) {
+                    LocalDate date = startDate;
+                    startDate = endDate;
+                    endDate = date;
+                }
+                assertEquals(expected.getWorkdays(startDate, endDate), plain.getWorkdays(startDate, endDate));
+                assertEquals(expected.getWorkdays(startDate, endDate), windowed.getWorkdays(startDate, endDate));
+            } catch (DateTimeException e) {}
+        }
+    }
+
+    /**
+     * @return the calendar counting workdays of a single range by the specified calendar,
+     * which relies on default implementations of other methods.
+     */
+    private static Workdays getDefaultWorkdays(Workdays workdays) {
+        return new Workdays() {
+            public long getWorkdays(LocalDate startDate, LocalDate endDate) { return workdays.getWorkdays(startDate, endDate); }
+            public Set<DayOfWeek> getWeekendDays() { return workdays.getWeekendDays(); }
+            public boolean addHoliday(LocalDate holidayDate) { return false; }
+            public long load(DateReader reader) { return 0; }
+            public long save(DateWriter writer) { return 0; }
+        };
+    }
+
+    /**
+     * Verify that batch calculation of workdays gives the same results as calculation per range
+     * for tree based, epoch day based and default implementations.
+     */
+    @Test
+    public void batchWorkdays() throws DateReaderException
+    {
+        SecureRandom random = new SecureRandom();
+        TreeSetWorkdays treeSetWorkdays = new TreeSetWorkdays(new RandomDateReader(NUMBER_OF_HOLIDAYS));
+        EpochDayWorkdays epochDayWorkdays = new EpochDayWorkdays();
+        for (LocalDate date : treeSetWorkdays.holidaySet) {
+            epochDayWorkdays.addHoliday(date);
+        }
+        int[] startEpochDays = new int[NUMBER_OF_RANDOM_TEST];
+        int[] endEpochDays = new int[NUMBER_OF_RANDOM_TEST];
+        long[] packedRanges = new long[NUMBER_OF_RANDOM_TEST];
+        long[] expected = new long[NUMBER_OF_RANDOM_TEST];
+        for (int i = 0; i < NUMBER_OF_RANDOM_TEST; i++) {
+            LocalDate startDate = LocalDate.of(2000, 1, 1).plusDays(random.nextInt(8000));
+            // Empty ranges ending the day before they start are included.
+            LocalDate endDate = startDate.plusDays(random.nextInt(801) - 1);
+            startEpochDays[i] = (int) startDate.toEpochDay();
+            endEpochDays[i] = (int) endDate.toEpochDay();
+            packedRanges[i] = Workdays.packRange(startEpochDays[i], endEpochDays[i]);
+            expected[i] = treeSetWorkdays.getWorkdays(startDate, endDate);
+        }
+
+        long[] result = new long[NUMBER_OF_RANDOM_TEST];
+        treeSetWorkdays.getWorkdays(startEpochDays, endEpochDays, result);
+        assertArrayEquals(expected, result);
+        result = new long[NUMBER_OF_RANDOM_TEST];
+        treeSetWorkdays.getWorkdays(packedRanges, result);
+        assertArrayEquals(expected, result);
+        result = new long[NUMBER_OF_RANDOM_TEST];
+        epochDayWorkdays.getWorkdays(startEpochDays, endEpochDays, result);
+        assertArrayEquals(expected, result);
+
+        Workdays defaultWorkdays = getDefaultWorkdays(treeSetWorkdays);
+        result = new long[NUMBER_OF_RANDOM_TEST];
+        defaultWorkdays.getWorkdays(packedRanges, result);
+        assertArrayEquals(expected, result);
+    }
+
+    /**
+     * Verify that adding and subtracting workdays gives the same date as counting day by day
+     * for random weekend days, holidays and number of workdays.
+     */
+    @Test
+    public void addWorkdays() throws DateReaderException
+    {
+        SecureRandom random = new SecureRandom();
+        for (int i = 0; i < NUMBER_OF_RANDOM_TEST; i++) {
+            Set<DayOfWeek> weekendSet = EnumSet.noneOf(DayOfWeek.class);
+            for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+                if (random.nextInt(3) == 0) {
+                    weekendSet.add(dayOfWeek);
+                }
+            }
+            if (weekendSet.size() == NUMBER_OF_WEEK_DAYS) {
+                continue;
+            }
+            LocalDate holidayStartDate = LocalDate.of(2010, 1, 1);
+            TreeSetWorkdays treeSetWorkdays = new TreeSetWorkdays(new SequentialDateReader(holidayStartDate, holidayStartDate.plusDays(10)), weekendSet);
+            for (int j = 0; j < 50; ++j) {
+                treeSetWorkdays.addHoliday(holidayStartDate.plusDays(random.nextInt(400)));
+            }
+            EpochDayWorkdays epochDayWorkdays = new EpochDayWorkdays(weekendSet);
+            for (LocalDate date : treeSetWorkdays.holidaySet) {
+                epochDayWorkdays.addHoliday(date);
+            }
+
+            LocalDate date = holidayStartDate.plusDays(random.nextInt(400) - 20);
+            int workdays = random.nextInt(200) - 100;
+            LocalDate expected = date;
+            for (int remaining = Math.abs(workdays); remaining > 0; ) {
+                expected = expected.plusDays(workdays > 0 ? 1 : -1);
+                if (!weekendSet.contains(expected.getDayOfWeek()) && !treeSetWorkdays.holidaySet.contains(expected)) {
+                    --remaining;
+                }
+            }
+            assertEquals(expected, treeSetWorkdays.addWorkdays(date, workdays));
+            assertEquals(expected, treeSetWorkdays.subtractWorkdays(date, -workdays));
+            assertEquals(expected, epochDayWorkdays.addWorkdays(date, workdays));
+            Workdays defaultWorkdays = getDefaultWorkdays(treeSetWorkdays);
+            assertEquals(expected, defaultWorkdays.addWorkdays(date, workdays));
+        }
+
+        // Each day of the week is a weekend day, so the search fails fast the same way as by the holiday index.
+        TreeSetWorkdays weekendWorkdays = new TreeSetWorkdays(EnumSet.allOf(DayOfWeek.class));
+        LocalDate date = LocalDate.of(2020, 1, 1);
+        assertThrows(IllegalArgumentException.class, () -> weekendWorkdays.addWorkdays(date, 10));
+        assertThrows(IllegalArgumentException.class, () -> getDefaultWorkdays(weekendWorkdays).addWorkdays(date, 10));
+        assertThrows(IllegalArgumentException.class, () -> getDefaultWorkdays(weekendWorkdays).subtractWorkdays(date, 1));
+    }
+
+    /**
+     * Verify that JSON reader gives the same dates irrespective to the way input is split into chunks,
+     * when reading from a stream returning a few bytes at a time and from a buffer.
+     */
+    @Test
+    public void jsonReaderChunks() throws DateReaderException, IOException
+    {
+        LocalDate startDate = LocalDate.of(1990, 1, 1);
+        TreeSetWorkdays workDaySave = new TreeSetWorkdays(new SequentialDateReader(startDate, startDate.plusDays(20000)));
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        workDaySave.save(new StreamDateWriter(oStream));
+
+        InputStream iStream = new ByteArrayInputStream(oStream.toByteArray()) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+        TreeSetWorkdays workDayLoad = new TreeSetWorkdays(new StreamDateReader(iStream));
+        assertEquals(workDaySave.holidaySet, workDayLoad.holidaySet);
+
+        workDayLoad = new TreeSetWorkdays(new StreamDateReader(ByteBuffer.wrap(oStream.toByteArray())));
+        assertEquals(workDaySave.holidaySet, workDayLoad.holidaySet);
+    }
+
+    /**
+     * Verify that holidays saved to a local file are loaded back through memory mapped file.
+     */
+    @Test
+    public void localFileSaveLoad() throws DateReaderException, IOException
+    {
+        DateReader randomDatereader = new RandomDateReader(NUMBER_OF_HOLIDAYS);
+        TreeSetWorkdays workDaySave = new TreeSetWorkdays(randomDatereader);
+        File file = File.createTempFile("workdays", ".json");
+        file.deleteOnExit();
+        try (OutputStream stream = new FileOutputStream(file)) {
+            workDaySave.save(new StreamDateWriter(stream));
+        }
+        LocalFileWorkdays workDayLoad = new LocalFileWorkdays(file.getPath());
+        assertEquals(workDaySave.holidaySet, workDayLoad.holidaySet);
+        assertEquals(workDaySave.holidaySet.size(), workDayLoad.load(file.getPath()));
+    }
+
+    /**
+     * Verify that binary reader correctly loads holidays saved by binary writer,
+     * directly and through local file having binary extension.
+     */
+    @Test
+    public void binarySaveLoad() throws DateReaderException, IOException
+    {
+        DateReader randomDatereader = new RandomDateReader(NUMBER_OF_HOLIDAYS);
+        TreeSetWorkdays workDaySave = new TreeSetWorkdays(randomDatereader);
+
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        workDaySave.save(new BinaryDateWriter(oStream));
+        ByteArrayInputStream iStream = new ByteArrayInputStream(oStream.toByteArray());
+        TreeSetWorkdays workDayLoad = new TreeSetWorkdays(new BinaryDateReader(iStream));
+        assertEquals(workDaySave.holidaySet, workDayLoad.holidaySet);
+
+        File file = File.createTempFile("workdays", AbstractBinaryStreamSupport.BINARY_FILE_EXTENSION);
+        file.deleteOnExit();
+        try (OutputStream stream = new FileOutputStream(file)) {
+            stream.write(oStream.toByteArray());
+        }
+        LocalFileWorkdays localFileWorkdays = new LocalFileWorkdays(file.getPath());
+        assertEquals(workDaySave.holidaySet, localFileWorkdays.holidaySet);
+        assertEquals(workDaySave.holidaySet.size(), localFileWorkdays.save(file.getPath()));
+        assertEquals(oStream.size(), file.length());
+    }
+
+    /**
+     * Verify that bulk load accepts the same holidays and returns the same count as regular load,
+     * including duplicates and weekend days in the source.
+     */
+    @Test
+    public void bulkLoad() throws DateReaderException, IOException
+    {
+        TreeSetWorkdays workDaySave = new TreeSetWorkdays(EnumSet.noneOf(DayOfWeek.class));
+        workDaySave.load(new RandomDateReader(NUMBER_OF_HOLIDAYS));
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        workDaySave.save(new StreamDateWriter(oStream));
+        oStream.reset();
+        DateWriter writer = new StreamDateWriter(oStream);
+        for (LocalDate date : workDaySave.holidaySet.descendingSet()) {
+            writer.write(date);
+            writer.write(date);
+        }
+        writer.commit();
+
+        TreeSetWorkdays expected = new TreeSetWorkdays();
+        long count = expected.load(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray())));
+        TreeSetWorkdays treeSetWorkdays = new TreeSetWorkdays();
+        assertEquals(count, treeSetWorkdays.loadAll(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray()))));
+        assertEquals(expected.holidaySet, treeSetWorkdays.holidaySet);
+        EpochDayWorkdays epochDayWorkdays = new EpochDayWorkdays();
+        assertEquals(count, epochDayWorkdays.loadAll(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray()))));
+        assertEquals(expected.holidaySet, new EpochDaySortedSet(epochDayWorkdays.holidays.days));
+    }
+
+    /**
+     * Verify that concurrent queries observe either complete calendar before reload
+     * or complete calendar after reload, but never an empty or partially loaded one.
+     */
+    @Test
+    public void concurrentReload() throws Exception
+    {
+        LocalDate startDate = LocalDate.of(2020, 1, 1);
+        LocalDate endDate = LocalDate.of(2020, 12, 31);
+        ConcurrentWorkdays workdays = new ConcurrentWorkdays(new SequentialDateReader(startDate, endDate), EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+        long allWorkdays = new TreeSetWorkdays().getWorkdays(startDate, endDate);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AtomicBoolean isReloading = new AtomicBoolean(true);
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                readers.add(executor.submit(() -> {
+                    while (isReloading.get()) {
+                        long result = workdays.getWorkdays(startDate, endDate);
+                        assertTrue(0 == result || allWorkdays == result, "Partial calendar observed: " + result);
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < 200; ++i) {
+                workdays.load(new SequentialDateReader(startDate, endDate));
+                workdays.load(new SequentialDateReader(endDate.plusDays(1), endDate.plusDays(1)));
+            }
+            isReloading.set(false);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(allWorkdays, workdays.getWorkdays(startDate, endDate));
+    }
+
+    /**
+     * Verify that registry shares equal holidays between calendars
+     * and composed calendar assumes holidays of base and overlay calendars.
+     */
+    @Test
+    public void registry() throws DateReaderException
+    {
+        Set<DayOfWeek> weekendSet = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+        LocalDate nationalDate = LocalDate.of(2021, 1, 1);
+        LocalDate regionalDate = LocalDate.of(2021, 3, 1);
+        WorkdaysRegistry registry = new WorkdaysRegistry();
+        registry.register("national", weekendSet, new SequentialDateReader(nationalDate, nationalDate.plusDays(9)));
+        registry.register("copy", weekendSet, new SequentialDateReader(nationalDate, nationalDate.plusDays(9)));
+        registry.register("regional", EnumSet.noneOf(DayOfWeek.class), new SequentialDateReader(regionalDate, regionalDate.plusDays(9)));
+        Workdays composed = registry.compose("national-regional", "national", "regional");
+        assertEquals(4, registry.size());
+        assertSame(((ConcurrentWorkdays) registry.get("national")).holidays.get().days,
+                ((ConcurrentWorkdays) registry.get("copy")).holidays.get().days);
+
+        TreeSetWorkdays expected = new TreeSetWorkdays(new SequentialDateReader(nationalDate, nationalDate.plusDays(9)), weekendSet);
+        for (LocalDate date = regionalDate; date.isBefore(regionalDate.plusDays(10)); date = date.plusDays(1)) {
+            expected.addHoliday(date);
+        }
+        LocalDate endDate = LocalDate.of(2021, 12, 31);
+        assertEquals(expected.getWorkdays(nationalDate, endDate), composed.getWorkdays(nationalDate, endDate));
+        assertEquals(expected.getWorkdays(nationalDate, endDate), registry.get("national-regional").getWorkdays(nationalDate, endDate));
+
+        // Shared holidays stay pooled until the last calendar using them is replaced or removed.
+        assertEquals(3, registry.pool.size());
+        registry.register("copy", weekendSet, new SequentialDateReader(regionalDate, regionalDate.plusDays(9)));
+        assertEquals(4, registry.pool.size());
+        assertSame(composed, registry.remove("national-regional"));
+        registry.remove("national");
+        assertEquals(2, registry.pool.size());
+        assertNull(registry.remove("national"));
+        assertEquals(2, registry.size());
+    }
+
+    /**
+     * Verify that incremental changes give the same holidays and workdays for all implementations,
+     * including patched precomputed structures, as a set modified date by date.
+     */
+    @Test
+    public void applyChanges() throws DateReaderException
+    {
+        SecureRandom random = new SecureRandom();
+        LocalDate startDate = LocalDate.of(2010, 1, 1);
+        LocalDate endDate = LocalDate.of(2012, 12, 31);
+        Set<DayOfWeek> weekendSet = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+        TreeSetWorkdays treeSetWorkdays = new TreeSetWorkdays(new RandomDateReader(NUMBER_OF_HOLIDAYS), weekendSet);
+        EpochDayWorkdays epochDayWorkdays = new EpochDayWorkdays(weekendSet, startDate, endDate);
+        ConcurrentWorkdays concurrentWorkdays = new ConcurrentWorkdays(weekendSet);
+        TreeSetWorkdays expected = new TreeSetWorkdays(weekendSet);
+        for (LocalDate date : treeSetWorkdays.holidaySet) {
+            epochDayWorkdays.addHoliday(date);
+            concurrentWorkdays.addHoliday(date);
+            expected.addHoliday(date);
+        }
+        // Build precomputed structures, so they are patched afterwards.
+        treeSetWorkdays.addWorkdays(startDate, 1);
+        epochDayWorkdays.getWorkdays(startDate, endDate);
+
+        for (int batch = 0; batch < 20; ++batch) {
+            LocalDate additionDate = startDate.plusDays(random.nextInt(1000));
+            LocalDate removalDate = startDate.plusDays(random.nextInt(1000));
+            int additionDays = random.nextInt(20);
+            int removalDays = random.nextInt(20);
+            long changes = 0;
+            for (int i = 0; i < removalDays; ++i) {
+                if (expected.removeHoliday(removalDate.plusDays(i))) {
+                    ++changes;
+                }
+            }
+            for (int i = 0; i < additionDays; ++i) {
+                if (expected.addHoliday(additionDate.plusDays(i))) {
+                    ++changes;
+                }
+            }
+            for (Workdays workdays : new Workdays[] {treeSetWorkdays, epochDayWorkdays, concurrentWorkdays}) {
+                assertEquals(changes, workdays.applyChanges(
+                        new SequentialDateReader(additionDate, additionDate.plusDays(additionDays - 1)),
+                        new SequentialDateReader(removalDate, removalDate.plusDays(removalDays - 1))));
+            }
+            LocalDate date = startDate.plusDays(random.nextInt(1000));
+            assertEquals(expected.removeHoliday(date), epochDayWorkdays.removeHoliday(date));
+            treeSetWorkdays.removeHoliday(date);
+            concurrentWorkdays.removeHoliday(date);
+
+            for (int i = 0; i < 50; ++i) {
+                LocalDate rangeStartDate = startDate.plusDays(random.nextInt(1000));
+                LocalDate rangeEndDate = rangeStartDate.plusDays(random.nextInt(100));
+                long workdays = expected.getWorkdays(rangeStartDate, rangeEndDate);
+                assertEquals(workdays, treeSetWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+                assertEquals(workdays, epochDayWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+                assertEquals(workdays, concurrentWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+                assertEquals(expected.addWorkdays(rangeStartDate, 10), treeSetWorkdays.addWorkdays(rangeStartDate, 10));
+            }
+        }
+    }
+
+    /**
+     * Verify that metered decorator returns the same results as the delegate
+     * and records queries, loads and saves.
+     */
+    @Test
+    public void meteredWorkdays() throws DateReaderException, IOException
+    {
+        TreeSetWorkdays workDaySave = new TreeSetWorkdays();
+        workDaySave.load(new RandomDateReader(NUMBER_OF_HOLIDAYS));
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        workDaySave.save(new StreamDateWriter(oStream));
+
+        HistogramWorkdaysMetrics metrics = new HistogramWorkdaysMetrics();
+        EpochDayWorkdays epochDayWorkdays = new EpochDayWorkdays();
+        Workdays meteredWorkdays = new MeteredWorkdays(epochDayWorkdays, metrics);
+        Workdays disabledWorkdays = new MeteredWorkdays(epochDayWorkdays, WorkdaysMetrics.NO_OP);
+        assertEquals(workDaySave.holidaySet.size(), meteredWorkdays.load(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray()))));
+        assertEquals(workDaySave.holidaySet.size(), metrics.getLoadedEntries());
+        assertEquals(oStream.size(), metrics.getLoadedBytes());
+        assertEquals(workDaySave.getWeekendDays(), meteredWorkdays.getWeekendDays());
+
+        SecureRandom random = new SecureRandom();
+        LocalDate startDate = LocalDate.of(1990, 1, 1);
+        long maxHolidays = 0;
+        for (int i = 0; i < NUMBER_OF_RANDOM_TEST; ++i) {
+            LocalDate rangeStartDate = startDate.plusDays(random.nextInt(20000));
+            LocalDate rangeEndDate = rangeStartDate.plusDays(random.nextInt(1000));
+            long workdays = workDaySave.getWorkdays(rangeStartDate, rangeEndDate);
+            assertEquals(workdays, meteredWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+            assertEquals(workdays, disabledWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+            maxHolidays = Math.max(maxHolidays, workDaySave.holidaySet.subSet(rangeStartDate, true, rangeEndDate, true).size());
+        }
+        assertEquals(NUMBER_OF_RANDOM_TEST, metrics.getQueryCount());
+        assertTrue(metrics.getRangeDaysP99() <= 1001);
+        assertTrue(metrics.getHolidaysPerQueryP99() <= maxHolidays);
+        assertTrue(metrics.getQueryLatencyP50() <= metrics.getQueryLatencyMax());
+
+        oStream.reset();
+        assertEquals(workDaySave.holidaySet.size(), meteredWorkdays.save(new StreamDateWriter(oStream)));
+        assertEquals(workDaySave.holidaySet.size(), metrics.getSavedEntries());
+        metrics.reset();
+        assertEquals(0, metrics.getQueryCount());
+    }
+
+    /**
+     * Verify that caching decorator returns the same results as the delegate,
+     * including repeated queries after holidays modification, and evicts entries beyond capacity.
+     */
+    @Test
+    public void cachingWorkdays() throws DateReaderException
+    {
+        TreeSetWorkdays expected = new TreeSetWorkdays();
+        expected.load(new RandomDateReader(NUMBER_OF_HOLIDAYS));
+        CachingWorkdays cachingWorkdays = new CachingWorkdays(new EpochDayWorkdays(), 64);
+        cachingWorkdays.load(new SequentialDateReader(LocalDate.of(1990, 1, 1), LocalDate.of(1990, 1, 1)));
+        List<LocalDate> holidays = new ArrayList<>(expected.holidaySet);
+        assertEquals(expected.holidaySet.size(), cachingWorkdays.loadAll(new DateReader() {
+            int i = 0;
+            public LocalDate read() { return i < holidays.size() ? holidays.get(i++) : null; }
+        }));
+
+        SecureRandom random = new SecureRandom();
+        LocalDate startDate = LocalDate.of(1990, 1, 1);
+        LocalDate[] rangeStartDates = new LocalDate[32];
+        for (int i = 0; i < rangeStartDates.length; ++i) {
+            rangeStartDates[i] = startDate.plusDays(random.nextInt(20000));
+        }
+        for (int i = 0; i < NUMBER_OF_RANDOM_TEST; ++i) {
+            LocalDate rangeStartDate = rangeStartDates[random.nextInt(rangeStartDates.length)];
+            LocalDate rangeEndDate = rangeStartDate.plusDays(30);
+            if (0 == i % 100) {
+                LocalDate holidayDate = rangeStartDate.plusDays(random.nextInt(30));
+                assertEquals(expected.addHoliday(holidayDate), cachingWorkdays.addHoliday(holidayDate));
+            } else if (0 == i % 101) {
+                LocalDate holidayDate = rangeStartDate.plusDays(random.nextInt(30));
+                assertEquals(expected.removeHoliday(holidayDate), cachingWorkdays.removeHoliday(holidayDate));
+            }
+            assertEquals(expected.getWorkdays(rangeStartDate, rangeEndDate), cachingWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+        }
+        assertEquals(NUMBER_OF_RANDOM_TEST, cachingWorkdays.getHitCount() + cachingWorkdays.getMissCount());
+        assertTrue(cachingWorkdays.getHitCount() > cachingWorkdays.getMissCount());
+
+        long evictions = cachingWorkdays.getEvictionCount();
+        for (int i = 0; i < 1000; ++i) {
+            LocalDate rangeStartDate = startDate.plusDays(i);
+            assertEquals(expected.getWorkdays(rangeStartDate, rangeStartDate.plusDays(i)), cachingWorkdays.getWorkdays(rangeStartDate, rangeStartDate.plusDays(i)));
+        }
+        assertTrue(cachingWorkdays.getEvictionCount() - evictions >= 1000 - 64);
+    }
+
+    /**
+     * Verify that parallel parsing of JSON array in chunks of different sizes
+     * loads the same holidays and returns the same count as sequential load.
+     */
+    @Test
+    public void parallelLoad() throws DateReaderException, IOException
+    {
+        TreeSetWorkdays workDaySave = new TreeSetWorkdays(EnumSet.noneOf(DayOfWeek.class));
+        workDaySave.load(new RandomDateReader(NUMBER_OF_HOLIDAYS));
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        DateWriter writer = new StreamDateWriter(oStream);
+        for (LocalDate date : workDaySave.holidaySet.descendingSet()) {
+            writer.write(date);
+            writer.write(date);
+        }
+        writer.commit();
+        byte[] json = oStream.toByteArray();
+
+        TreeSetWorkdays expected = new TreeSetWorkdays();
+        long count = expected.load(new StreamDateReader(new ByteArrayInputStream(json)));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunkSize : new int[] {1, 7, 100, 4096, json.length}) {
+                TreeSetWorkdays treeSetWorkdays = new TreeSetWorkdays();
+                assertEquals(count, treeSetWorkdays.loadAll(new ParallelDateReader(ByteBuffer.wrap(json), pool, chunkSize)));
+                assertEquals(expected.holidaySet, treeSetWorkdays.holidaySet);
+                EpochDayWorkdays epochDayWorkdays = new EpochDayWorkdays();
+                assertEquals(count, epochDayWorkdays.loadAll(new ParallelDateReader(ByteBuffer.wrap(json), pool, chunkSize)));
+                assertEquals(expected.holidaySet, new EpochDaySortedSet(epochDayWorkdays.holidays.days));
+            }
+            byte[] trailing = new String(json, StandardCharsets.US_ASCII).concat("2020-13-").getBytes(StandardCharsets.US_ASCII);
+            assertEquals(count, new EpochDayWorkdays().loadAll(new ParallelDateReader(ByteBuffer.wrap(trailing), pool, 100)));
+            assertThrows(DateReaderException.class, () ->
+                    new EpochDayWorkdays().loadAll(new ParallelDateReader(ByteBuffer.wrap(json, 0, json.length - 1), pool, 100)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Verify that dates written one by one and in bulk are formatted exactly as by DATE_TIME_FORMATTER,
+     * including years, which do not have four digits, and that bulk save produces the same bytes.
+     */
+    @Test
+    public void jsonWriterFormat() throws DateReaderException, IOException
+    {
+        for (long epochDay = AbstractJsonStreamSupport.MIN_FOUR_DIGIT_YEAR_EPOCH_DAY; epochDay <= AbstractJsonStreamSupport.MAX_FOUR_DIGIT_YEAR_EPOCH_DAY; ++epochDay) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            assertEquals(date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth(), AbstractJsonStreamSupport.toYearMonthDay(epochDay));
+        }
+
+        SecureRandom random = new SecureRandom();
+        int[] epochDays = new int[NUMBER_OF_RANDOM_TEST * 10];
+        for (int i = 0; i < epochDays.length; ++i) {
+            epochDays[i] = (int) AbstractJsonStreamSupport.MIN_FOUR_DIGIT_YEAR_EPOCH_DAY - 1000 + random.nextInt(3700000);
+        }
+        epochDays[0] = (int) LocalDate.of(0, 12, 31).toEpochDay();
+        epochDays[1] = (int) LocalDate.of(10000, 1, 1).toEpochDay();
+        epochDays[2] = (int) LocalDate.of(-12345, 6, 7).toEpochDay();
+        epochDays[3] = (int) LocalDate.of(1, 1, 1).toEpochDay();
+        epochDays[4] = (int) LocalDate.of(9999, 12, 31).toEpochDay();
+        StringBuilder expected = new StringBuilder(AbstractJsonStreamSupport.JSON_ARRAY_START);
+        for (int i = 0; i < epochDays.length; ++i) {
+            if (0 != i) {
+                expected.append(AbstractJsonStreamSupport.JSON_SEPARATOR);
+            }
+            expected.append(AbstractJsonStreamSupport.JSON_QUOTE)
+                    .append(LocalDate.ofEpochDay(epochDays[i]).format(AbstractJsonStreamSupport.DATE_TIME_FORMATTER))
+                    .append(AbstractJsonStreamSupport.JSON_QUOTE);
+        }
+        expected.append(AbstractJsonStreamSupport.JSON_ARRAY_END);
+
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        DateWriter writer = new StreamDateWriter(oStream);
+        for (int epochDay : epochDays) {
+            writer.write(LocalDate.ofEpochDay(epochDay));
+        }
+        writer.commit();
+        assertEquals(expected.toString(), new String(oStream.toByteArray(), StandardCharsets.UTF_8));
+        oStream.reset();
+        writer = new StreamDateWriter(oStream);
+        writer.write(epochDays, 0, 1);
+        writer.write(epochDays, 1, epochDays.length - 1);
+        writer.commit();
+        assertEquals(expected.toString(), new String(oStream.toByteArray(), StandardCharsets.UTF_8));
+
+        TreeSetWorkdays treeSetWorkdays = new TreeSetWorkdays();
+        treeSetWorkdays.load(new RandomDateReader(NUMBER_OF_HOLIDAYS));
+        oStream.reset();
+        writer = new StreamDateWriter(oStream);
+        for (LocalDate date : treeSetWorkdays.holidaySet) {
+            writer.write(date);
+        }
+        writer.commit();
+        ByteArrayOutputStream bulkStream = new ByteArrayOutputStream();
+        assertEquals(treeSetWorkdays.holidaySet.size(), treeSetWorkdays.save(new StreamDateWriter(bulkStream)));
+        assertArrayEquals(oStream.toByteArray(), bulkStream.toByteArray());
+    }
+
+    /**
+     * Verify that bitset calendar gives the same results as the tree based one
+     * for sparse and dense holidays, and takes less memory for dense ones.
+     */
+    @Test
+    public void bitsetWorkdays() throws DateReaderException, IOException
+    {
+        TreeSetWorkdays expected = new TreeSetWorkdays();
+        expected.load(new RandomDateReader(NUMBER_OF_HOLIDAYS));
+        BitsetWorkdays bitsetWorkdays = new BitsetWorkdays();
+        for (LocalDate date : expected.holidaySet.descendingSet()) {
+            assertTrue(bitsetWorkdays.addHoliday(date));
+        }
+        ByteArrayOutputStream expectedStream = new ByteArrayOutputStream();
+        expected.save(new StreamDateWriter(expectedStream));
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        assertEquals(expected.holidaySet.size(), bitsetWorkdays.save(new StreamDateWriter(oStream)));
+        assertArrayEquals(expectedStream.toByteArray(), oStream.toByteArray());
+
+        SecureRandom random = new SecureRandom();
+        LocalDate startDate = LocalDate.of(1990, 1, 1);
+        for (int i = 0; i < NUMBER_OF_RANDOM_TEST; ++i) {
+            LocalDate rangeStartDate = startDate.plusDays(random.nextInt(30000) - 5000);
+            LocalDate rangeEndDate = rangeStartDate.plusDays(random.nextInt(5000));
+            assertEquals(expected.getWorkdays(rangeStartDate, rangeEndDate), bitsetWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+        }
+
+        // Plant shutdown schedule, where almost every weekday of several years is a holiday.
+        TreeSetWorkdays denseExpected = new TreeSetWorkdays();
+        for (LocalDate date = LocalDate.of(2020, 1, 1); date.isBefore(LocalDate.of(2030, 1, 1)); date = date.plusDays(1)) {
+            if (0 != random.nextInt(10)) {
+                denseExpected.addHoliday(date);
+            }
+        }
+        oStream.reset();
+        denseExpected.save(new StreamDateWriter(oStream));
+        BitsetWorkdays denseWorkdays = new BitsetWorkdays();
+        assertEquals(denseExpected.holidaySet.size(), denseWorkdays.loadAll(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray()))));
+        denseWorkdays.getWorkdays(LocalDate.of(2020, 1, 1), LocalDate.of(2029, 12, 31));
+        int[] cumulativeHolidays = denseWorkdays.cumulativeHolidays;
+        for (int i = 0; i < NUMBER_OF_RANDOM_TEST; ++i) {
+            LocalDate date = LocalDate.of(2020, 1, 1).plusDays(random.nextInt(3653));
+            assertEquals(denseExpected.removeHoliday(date), denseWorkdays.removeHoliday(date));
+            date = LocalDate.of(2020, 1, 1).plusDays(random.nextInt(3653));
+            assertEquals(denseExpected.addHoliday(date), denseWorkdays.addHoliday(date));
+            LocalDate rangeStartDate = LocalDate.of(2019, 1, 1).plusDays(random.nextInt(4000));
+            LocalDate rangeEndDate = rangeStartDate.plusDays(random.nextInt(1000));
+            assertEquals(denseExpected.getWorkdays(rangeStartDate, rangeEndDate), denseWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+        }
+        // Changes within the covered span patch the number of holidays per year instead of rebuilding it.
+        assertSame(cumulativeHolidays, denseWorkdays.cumulativeHolidays);
+        assertTrue(denseWorkdays.getMemoryFootprint() * 10 < denseExpected.getMemoryFootprint());
+
+        // Far apart holidays are rejected instead of allocating bits for each year between them.
+        long memoryFootprint = denseWorkdays.getMemoryFootprint();
+        long workdays = denseWorkdays.getWorkdays(LocalDate.of(2020, 1, 1), LocalDate.of(2029, 12, 31));
+        assertThrows(IllegalArgumentException.class, () -> denseWorkdays.addHoliday(LocalDate.of(1000000, 1, 3)));
+        assertThrows(IllegalArgumentException.class, () -> denseWorkdays.addHoliday(LocalDate.of(-1000000, 1, 3)));
+        LocalDate[] farDates = {LocalDate.of(2000, 1, 3), LocalDate.of(1000000, 1, 3)};
+        int[] position = {0};
+        assertThrows(IllegalArgumentException.class, () -> denseWorkdays.loadAll(() -> position[0] < farDates.length ? farDates[position[0]++] : null));
+        assertEquals(memoryFootprint, denseWorkdays.getMemoryFootprint());
+        assertEquals(workdays, denseWorkdays.getWorkdays(LocalDate.of(2020, 1, 1), LocalDate.of(2029, 12, 31)));
+        assertTrue(denseWorkdays.addHoliday(LocalDate.of(2020 + BitsetWorkdays.MAX_YEARS - 1, 1, 3)));
+    }
+
+    /**
+     * Verify that asynchronous load from a simulated slow source loads the same holidays
+     * as synchronous load, keeping a single batch in flight, and reports reader failure.
+     */
+    @Test
+    public void asyncLoad() throws Exception
+    {
+        LocalDate startDate = LocalDate.of(2000, 1, 1);
+        LocalDate finishDate = LocalDate.of(2003, 12, 31);
+        TreeSetWorkdays expected = new TreeSetWorkdays();
+        long count = expected.load(new SequentialDateReader(startDate, finishDate));
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        try {
+            TreeSetWorkdays treeSetWorkdays = new TreeSetWorkdays();
+            SimulatedSlowDateReader reader = new SimulatedSlowDateReader(startDate, finishDate, 100, 1, scheduler);
+            assertEquals(count, treeSetWorkdays.loadAsync(reader).get().longValue());
+            assertEquals(expected.holidaySet, treeSetWorkdays.holidaySet);
+            assertEquals(1, reader.maxInFlight);
+
+            EpochDayWorkdays epochDayWorkdays = new EpochDayWorkdays();
+            epochDayWorkdays.addHoliday(LocalDate.of(1999, 1, 1));
+            assertEquals(count, epochDayWorkdays.loadAsync(new SimulatedSlowDateReader(startDate, finishDate, 7, 0, scheduler)).get().longValue());
+            assertEquals(expected.holidaySet, new EpochDaySortedSet(epochDayWorkdays.holidays.days));
+
+            ConcurrentWorkdays concurrentWorkdays = new ConcurrentWorkdays();
+            AsyncDateReader completedReader = new AsyncDateReader() {
+                LocalDate date = startDate;
+                public CompletableFuture<int[]> readBatchAsync() {
+                    int[] batch = date.isAfter(finishDate) ? new int[0] : new int[] {(int) date.toEpochDay()};
+                    date = date.plusDays(1);
+                    return CompletableFuture.completedFuture(batch);
+                }
+            };
+            assertEquals(count, concurrentWorkdays.loadAsync(completedReader).get().longValue());
+            assertEquals(expected.getWorkdays(startDate, finishDate), concurrentWorkdays.getWorkdays(startDate, finishDate));
+
+            AsyncDateReader failingReader = () -> {
+                CompletableFuture<int[]> result = new CompletableFuture<>();
+                scheduler.execute(() -> result.completeExceptionally(new DateReaderException("Remote source is not available.")));
+                return result;
+            };
+            ExecutionException exception = assertThrows(ExecutionException.class, () -> concurrentWorkdays.loadAsync(failingReader).get());
+            assertTrue(exception.getCause() instanceof DateReaderException);
+            assertEquals(expected.getWorkdays(startDate, finishDate), concurrentWorkdays.getWorkdays(startDate, finishDate));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Verify that snapshot written to a file and mapped back gives the same results
+     * as the calendar it was built from, and cannot be modified.
+     */
+    @Test
+    public void snapshot() throws DateReaderException, IOException
+    {
+        TreeSetWorkdays treeSetWorkdays = new TreeSetWorkdays(EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY));
+        treeSetWorkdays.load(new RandomDateReader(NUMBER_OF_HOLIDAYS));
+        WorkdaysSnapshot snapshot = WorkdaysSnapshot.of(treeSetWorkdays);
+        File file = File.createTempFile("workdays", ".snapshot");
+        file.deleteOnExit();
+        snapshot.write(file.getPath());
+        WorkdaysSnapshot mappedSnapshot = WorkdaysSnapshot.map(file.getPath());
+        assertEquals(treeSetWorkdays.getWeekendDays(), mappedSnapshot.getWeekendDays());
+        assertEquals(new EpochDaySortedSet(snapshot.holidays.days), new EpochDaySortedSet(mappedSnapshot.holidays.days));
+
+        SecureRandom random = new SecureRandom();
+        LocalDate startDate = LocalDate.of(1990, 1, 1);
+        for (int i = 0; i < NUMBER_OF_RANDOM_TEST; ++i) {
+            LocalDate rangeStartDate = startDate.plusDays(random.nextInt(30000) - 5000);
+            LocalDate rangeEndDate = rangeStartDate.plusDays(random.nextInt(5000));
+            long workdays = treeSetWorkdays.getWorkdays(rangeStartDate, rangeEndDate);
+            assertEquals(workdays, snapshot.getWorkdays(rangeStartDate, rangeEndDate));
+            assertEquals(workdays, mappedSnapshot.getWorkdays(rangeStartDate, rangeEndDate));
+            assertEquals(treeSetWorkdays.addWorkdays(rangeStartDate, i), mappedSnapshot.addWorkdays(rangeStartDate, i));
+        }
+        assertThrows(UnsupportedOperationException.class, () -> mappedSnapshot.addHoliday(startDate));
+
+        WorkdaysSnapshot emptySnapshot = WorkdaysSnapshot.of(new EpochDayWorkdays());
+        emptySnapshot.write(file.getPath());
+        assertEquals(261, WorkdaysSnapshot.map(file.getPath()).getWorkdays(LocalDate.of(2021, 1, 1), LocalDate.of(2021, 12, 31)));
+
+        // Corrupted holidays and block counts are rejected instead of giving wrong results.
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        snapshot.write(oStream);
+        byte[] bytes = oStream.toByteArray();
+        int daysOffset = WorkdaysSnapshot.HEADER_LENGTH;
+        int ranksOffset = daysOffset + snapshot.holidays.size() * Integer.BYTES;
+        int[][] corruptions = {
+                {daysOffset + Integer.BYTES, snapshot.holidays.days[0]},
+                {ranksOffset + Integer.BYTES, snapshot.blockRanks[1] + 1},
+                {ranksOffset + Integer.BYTES, snapshot.holidays.size() + 1},
+                {WorkdaysSnapshot.HEADER_LENGTH - Integer.BYTES * 2, snapshot.blockStart - 1}};
+        for (int[] corruption : corruptions) {
+            ByteBuffer corrupted = ByteBuffer.wrap(bytes.clone());
+            corrupted.putInt(corruption[0], corruption[1]);
+            assertThrows(IOException.class, () -> WorkdaysSnapshot.read(corrupted));
+        }
+        byte[] weekendBytes = bytes.clone();
+        weekendBytes[WorkdaysSnapshot.MAGIC.length + 1] = (byte) ((1 << NUMBER_OF_WEEK_DAYS) - 1);
+        assertThrows(IOException.class, () -> WorkdaysSnapshot.read(ByteBuffer.wrap(weekendBytes)));
+        assertThrows(IOException.class, () -> WorkdaysSnapshot.read(ByteBuffer.wrap(bytes, 0, bytes.length - Integer.BYTES)));
+        assertEquals(new EpochDaySortedSet(snapshot.holidays.days), new EpochDaySortedSet(WorkdaysSnapshot.read(ByteBuffer.wrap(bytes)).holidays.days));
+    }
+
+    /**
+     * Verify that lazily enumerated working days are the same as found day by day,
+     * for sequential and parallel streams of all implementations.
+     */
+    @Test
+    public void streamWorkdays() throws DateReaderException, IOException
+    {
+        TreeSetWorkdays treeSetWorkdays = new TreeSetWorkdays(EnumSet.of(DayOfWeek.SUNDAY, DayOfWeek.WEDNESDAY));
+        treeSetWorkdays.load(new RandomDateReader(NUMBER_OF_HOLIDAYS));
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        treeSetWorkdays.save(new StreamDateWriter(oStream));
+        Set<DayOfWeek> weekendSet = treeSetWorkdays.getWeekendDays();
+        BitsetWorkdays bitsetWorkdays = new BitsetWorkdays(weekendSet);
+        bitsetWorkdays.loadAll(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray())));
+        Workdays[] implementations = {
+                treeSetWorkdays,
+                new EpochDayWorkdays(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray())), weekendSet),
+                new ConcurrentWorkdays(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray())), weekendSet),
+                bitsetWorkdays,
+                new CachingWorkdays(bitsetWorkdays, 16),
+                WorkdaysSnapshot.of(treeSetWorkdays)};
+
+        SecureRandom random = new SecureRandom();
+        LocalDate startDate = LocalDate.of(1990, 1, 1);
+        for (int i = 0; i < 50; ++i) {
+            LocalDate rangeStartDate = startDate.plusDays(random.nextInt(30000) - 5000);
+            LocalDate rangeEndDate = rangeStartDate.plusDays(random.nextInt(3000));
+            List<Integer> expected = new ArrayList<>();
+            for (LocalDate date = rangeStartDate; !date.isAfter(rangeEndDate); date = date.plusDays(1)) {
+                if (1 == treeSetWorkdays.getWorkdays(date, date)) {
+                    expected.add((int) date.toEpochDay());
+                }
+            }
+            int[] expectedDays = expected.stream().mapToInt(Integer::intValue).toArray();
+            for (Workdays workdays : implementations) {
+                assertArrayEquals(expectedDays, workdays.streamWorkdays(rangeStartDate, rangeEndDate).toArray());
+                assertArrayEquals(expectedDays, workdays.streamWorkdays(rangeStartDate, rangeEndDate).parallel().toArray());
+                assertEquals(expectedDays.length, workdays.streamWorkdays(rangeStartDate, rangeEndDate).spliterator().getExactSizeIfKnown());
+            }
+        }
+        assertEquals(0, new TreeSetWorkdays(EnumSet.allOf(DayOfWeek.class)).streamWorkdays(startDate, startDate.plusDays(100)).count());
+    }
+
+    /**
+     * Verify that weekend days changing over time are assumed by each era of the range
+     * for single, batch and stream queries, and rejected by snapshot.
+     */
+    @Test
+    public void weekendSchedule() throws DateReaderException, IOException
+    {
+        LocalDate[] changes = {LocalDate.of(1976, 3, 4), LocalDate.of(2013, 6, 29)};
+        List<Set<DayOfWeek>> weekendSets = new ArrayList<>();
+        weekendSets.add(EnumSet.of(DayOfWeek.FRIDAY));
+        weekendSets.add(EnumSet.of(DayOfWeek.THURSDAY, DayOfWeek.FRIDAY));
+        weekendSets.add(EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY));
+        WeekendSchedule schedule = new WeekendSchedule(weekendSets.get(0))
+                .with(changes[1], EnumSet.of(DayOfWeek.SUNDAY))
+                .with(changes[0], weekendSets.get(1))
+                .with(changes[1], weekendSets.get(2));
+        assertEquals(weekendSets.get(1), schedule.getWeekendDays(changes[1].minusDays(1)));
+        assertEquals(weekendSets.get(2), schedule.getWeekendDays(changes[1]));
+
+        TreeSetWorkdays scheduledWorkdays = new TreeSetWorkdays(schedule);
+        scheduledWorkdays.load(new RandomDateReader(NUMBER_OF_HOLIDAYS));
+        assertEquals(weekendSets.get(2), scheduledWorkdays.getWeekendDays());
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        scheduledWorkdays.save(new StreamDateWriter(oStream));
+        Workdays[] eraWorkdays = new Workdays[weekendSets.size()];
+        for (int era = 0; era < eraWorkdays.length; ++era) {
+            eraWorkdays[era] = new EpochDayWorkdays(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray())), weekendSets.get(era));
+        }
+        Workdays metered = new MeteredWorkdays(scheduledWorkdays, WorkdaysMetrics.NO_OP);
+
+        SecureRandom random = new SecureRandom();
+        LocalDate startDate = LocalDate.of(1960, 1, 1);
+        int[] startEpochDays = new int[NUMBER_OF_RANDOM_TEST];
+        int[] endEpochDays = new int[NUMBER_OF_RANDOM_TEST];
+        long[] expectedWorkdays = new long[NUMBER_OF_RANDOM_TEST];
+        for (int i = 0; i < NUMBER_OF_RANDOM_TEST; ++i) {
+            LocalDate rangeStartDate = startDate.plusDays(random.nextInt(25000));
+            LocalDate rangeEndDate = rangeStartDate.plusDays(random.nextInt(20000));
+            startEpochDays[i] = (int) rangeStartDate.toEpochDay();
+            endEpochDays[i] = (int) rangeEndDate.toEpochDay();
+            // Count each era separately with its own weekend days.
+            long expected = 0;
+            for (int era = 0; era < eraWorkdays.length; ++era) {
+                LocalDate eraStartDate = 0 == era ? LocalDate.MIN : changes[era - 1];
+                LocalDate eraEndDate = era == changes.length ? LocalDate.MAX : changes[era].minusDays(1);
+                LocalDate segmentStartDate = rangeStartDate.isAfter(eraStartDate) ? rangeStartDate : eraStartDate;
+                LocalDate segmentEndDate = rangeEndDate.isBefore(eraEndDate) ? rangeEndDate : eraEndDate;
+                if (!segmentStartDate.isAfter(segmentEndDate)) {
+                    expected += eraWorkdays[era].getWorkdays(segmentStartDate, segmentEndDate);
+                }
+            }
+            expectedWorkdays[i] = expected;
+            assertEquals(expected, scheduledWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+            assertEquals(expected, metered.getWorkdays(rangeStartDate, rangeEndDate));
+            if (i < 20) {
+                assertEquals(expected, scheduledWorkdays.streamWorkdays(rangeStartDate, rangeEndDate).count());
+                long workdays = 1 + random.nextInt((int) Math.max(1, expected));
+                LocalDate date = scheduledWorkdays.addWorkdays(rangeStartDate, workdays);
+                assertEquals(workdays, scheduledWorkdays.getWorkdays(rangeStartDate.plusDays(1), date));
+                assertEquals(1, scheduledWorkdays.getWorkdays(date, date));
+            }
+        }
+        long[] batchWorkdays = new long[NUMBER_OF_RANDOM_TEST];
+        scheduledWorkdays.getWorkdays(startEpochDays, endEpochDays, batchWorkdays);
+        assertArrayEquals(expectedWorkdays, batchWorkdays);
+        assertThrows(IllegalArgumentException.class, () -> WorkdaysSnapshot.of(scheduledWorkdays));
+    }
+
+    /**
+     * Verify that partial working days are summed by their weights,
+     * while whole day holidays are counted the same way as by the tree based calendar.
+     */
+    @Test
+    public void weightedWorkdays() throws DateReaderException, IOException
+    {
+        Set<DayOfWeek> weekendSet = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+        WeightedWorkdays weightedWorkdays = new WeightedWorkdays(weekendSet);
+        SecureRandom random = new SecureRandom();
+        LocalDate startDate = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < NUMBER_OF_HOLIDAYS; ++i) {
+            LocalDate date = startDate.plusDays(random.nextInt(3000));
+            weightedWorkdays.setWeight(date, random.nextBoolean() ? WeightedWorkdays.WEIGHT_HALF : WeightedWorkdays.toWeight(0.3));
+        }
+        weightedWorkdays.loadAll(new RandomDateReader(NUMBER_OF_HOLIDAYS));
+        assertEquals(WeightedWorkdays.WEIGHT_ONE, weightedWorkdays.getWeight(LocalDate.of(1900, 1, 1)));
+        assertEquals(0, weightedWorkdays.getWeight(LocalDate.of(1900, 1, 6)));
+
+        for (int i = 0; i < 5; ++i) {
+            // Change weights of stored and new days, then compare with day by day sums.
+            for (int j = 0; j < 100; ++j) {
+                LocalDate date = startDate.plusDays(random.nextInt(3000));
+                weightedWorkdays.setWeight(date, random.nextInt(WeightedWorkdays.WEIGHT_ONE + 1));
+            }
+            weightedWorkdays.removeHoliday(startDate.plusDays(random.nextInt(3000)));
+            ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+            weightedWorkdays.save(new StreamDateWriter(oStream));
+            Workdays epochDayWorkdays = new EpochDayWorkdays(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray())), weekendSet);
+            for (int j = 0; j < 50; ++j) {
+                LocalDate rangeStartDate = startDate.plusDays(random.nextInt(3200) - 100);
+                LocalDate rangeEndDate = rangeStartDate.plusDays(random.nextInt(400));
+                long expected = 0;
+                for (LocalDate date = rangeStartDate; !date.isAfter(rangeEndDate); date = date.plusDays(1)) {
+                    expected += weightedWorkdays.getWeight(date);
+                }
+                assertEquals(expected, weightedWorkdays.getWeightedWorkdays(rangeStartDate, rangeEndDate));
+                assertEquals(epochDayWorkdays.getWorkdays(rangeStartDate, rangeEndDate), weightedWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> weightedWorkdays.setWeight(startDate, WeightedWorkdays.WEIGHT_ONE + 1));
+    }
+
+    /**
+     * Verify that holidays generated by recurring rules give the same workdays as the same holidays
+     * loaded explicitly, including explicit changes, cache eviction and years before the common era.
+     */
+    @Test
+    public void ruleBasedWorkdays() throws DateReaderException, IOException
+    {
+        assertEquals(LocalDate.of(2024, 3, 31).toEpochDay(), HolidayRule.getEasterSunday(2024));
+        assertEquals(LocalDate.of(1943, 4, 25).toEpochDay(), HolidayRule.getEasterSunday(1943));
+        assertEquals(LocalDate.of(2024, 11, 28).toEpochDay(), HolidayRule.nthWeekday(Month.NOVEMBER, 4, DayOfWeek.THURSDAY).getEpochDay(2024));
+        assertEquals(LocalDate.of(2024, 5, 27).toEpochDay(), HolidayRule.nthWeekday(Month.MAY, -1, DayOfWeek.MONDAY).getEpochDay(2024));
+        assertEquals(DateReader.NO_DATE, HolidayRule.fixed(Month.FEBRUARY, 29).getEpochDay(2023));
+        assertEquals(LocalDate.of(2023, 1, 2).toEpochDay(), HolidayRule.fixed(Month.JANUARY, 1).observedOnMonday().getEpochDay(2023));
+
+        Set<DayOfWeek> weekendSet = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+        List<HolidayRule> rules = new ArrayList<>();
+        rules.add(HolidayRule.fixed(Month.JANUARY, 1).observedOnMonday());
+        rules.add(HolidayRule.nthWeekday(Month.JANUARY, 3, DayOfWeek.MONDAY));
+        rules.add(HolidayRule.easter(-2));
+        rules.add(HolidayRule.easter(1));
+        rules.add(HolidayRule.nthWeekday(Month.MAY, -1, DayOfWeek.MONDAY));
+        rules.add(HolidayRule.fixed(Month.JULY, 4).observedOnMonday());
+        rules.add(HolidayRule.fixed(Month.FEBRUARY, 29));
+        rules.add(HolidayRule.nthWeekday(Month.NOVEMBER, 4, DayOfWeek.THURSDAY));
+        rules.add(HolidayRule.fixed(Month.DECEMBER, 31).observedOnMonday());
+        RuleBasedWorkdays ruleBasedWorkdays = new RuleBasedWorkdays(weekendSet, rules, 8);
+        assertEquals(0, ruleBasedWorkdays.expandedYears);
+        assertEquals(22, ruleBasedWorkdays.getWorkdays(LocalDate.of(2021, 12, 1), LocalDate.of(2021, 12, 31)));
+        assertEquals(1, ruleBasedWorkdays.expandedYears);
+        // December 31, 2022 is Saturday, which is observed on Monday, January 2, 2023 together with New Year.
+        assertEquals(20, ruleBasedWorkdays.getWorkdays(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31)));
+
+        ArrayDateWriter writer = new ArrayDateWriter();
+        ruleBasedWorkdays.save(1900, 2100, writer);
+        int[] days = writer.toArray();
+        Workdays epochDayWorkdays = new EpochDayWorkdays(new ArrayDateReader(days, days.length), weekendSet);
+        SecureRandom random = new SecureRandom();
+        LocalDate startDate = LocalDate.of(1900, 1, 1);
+        for (int i = 0; i < NUMBER_OF_RANDOM_TEST; ++i) {
+            LocalDate rangeStartDate = startDate.plusDays(random.nextInt(70000));
+            LocalDate rangeEndDate = rangeStartDate.plusDays(random.nextInt(Math.min(3000, (int) (73000 - rangeStartDate.toEpochDay() + startDate.toEpochDay()))));
+            if (0 == i % 100) {
+                LocalDate date = rangeStartDate.plusDays(random.nextInt(30));
+                assertEquals(epochDayWorkdays.addHoliday(date), ruleBasedWorkdays.addHoliday(date));
+                date = rangeStartDate.plusDays(random.nextInt(300));
+                assertEquals(epochDayWorkdays.removeHoliday(date), ruleBasedWorkdays.removeHoliday(date));
+            }
+            assertEquals(epochDayWorkdays.getWorkdays(rangeStartDate, rangeEndDate), ruleBasedWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+            if (i < 20) {
+                assertArrayEquals(epochDayWorkdays.streamWorkdays(rangeStartDate, rangeEndDate).toArray(),
+                        ruleBasedWorkdays.streamWorkdays(rangeStartDate, rangeEndDate).toArray());
+            }
+        }
+        assertTrue(ruleBasedWorkdays.years.size() <= 8);
+
+        // Middle years of ranges longer than the cache are counted without expanding them again.
+        LocalDate longRangeStartDate = LocalDate.of(1900, 1, 1);
+        LocalDate longRangeEndDate = LocalDate.of(2100, 12, 31);
+        long longRangeWorkdays = ruleBasedWorkdays.getWorkdays(longRangeStartDate, longRangeEndDate);
+        long expandedYears = ruleBasedWorkdays.expandedYears;
+        assertEquals(epochDayWorkdays.getWorkdays(longRangeStartDate, longRangeEndDate), longRangeWorkdays);
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(longRangeWorkdays, ruleBasedWorkdays.getWorkdays(longRangeStartDate, longRangeEndDate));
+        }
+        assertEquals(expandedYears, ruleBasedWorkdays.expandedYears);
+
+        // Holidays generated by the rules are saved only for the specified years, never partially.
+        assertThrows(IllegalStateException.class, () -> WorkdaysSnapshot.of(ruleBasedWorkdays));
+        LocalDate addedDate = LocalDate.of(2150, 6, 1);
+        ruleBasedWorkdays.addHoliday(addedDate);
+        ruleBasedWorkdays.setSavedYears(2020, 2021);
+        WorkdaysSnapshot snapshot = WorkdaysSnapshot.of(ruleBasedWorkdays);
+        LocalDate savedStartDate = LocalDate.of(2020, 1, 1);
+        assertEquals(ruleBasedWorkdays.getWorkdays(savedStartDate, savedStartDate.plusYears(2).minusDays(1)),
+                snapshot.getWorkdays(savedStartDate, savedStartDate.plusYears(2).minusDays(1)));
+        assertEquals(0, snapshot.getWorkdays(addedDate, addedDate));
+
+        // Years before the common era are expanded as years of proleptic Gregorian calendar.
+        assertEquals(LocalDate.of(-1, 4, 18).toEpochDay(), HolidayRule.getEasterSunday(-1));
+        RuleBasedWorkdays ancientWorkdays = new RuleBasedWorkdays(weekendSet,
+                Arrays.asList(HolidayRule.fixed(Month.JUNE, 15), HolidayRule.easter(1)));
+        for (int year = -6; year <= 0; ++year) {
+            TreeSetWorkdays expected = new TreeSetWorkdays(weekendSet);
+            expected.addHoliday(LocalDate.of(year, 6, 15));
+            expected.addHoliday(LocalDate.ofEpochDay(HolidayRule.getEasterSunday(year) + 1));
+            LocalDate yearStart = LocalDate.of(year, 1, 1);
+            LocalDate juneStart = LocalDate.of(year, 6, 1);
+            assertEquals(expected.getWorkdays(juneStart, juneStart.plusDays(29)), ancientWorkdays.getWorkdays(juneStart, juneStart.plusDays(29)));
+            assertEquals(expected.getWorkdays(yearStart, yearStart.plusYears(1).minusDays(1)),
+                    ancientWorkdays.getWorkdays(yearStart, yearStart.plusYears(1).minusDays(1)));
+        }
+    }
+
+    /**
+     * Verify that off-heap calendar gives the same results as the tree based one,
+     * releases native memory on growth and close, and rejects any use after it is closed.
+     */
+    @Test
+    public void offHeapWorkdays() throws DateReaderException, IOException
+    {
+        Set<DayOfWeek> weekendSet = EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY);
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        new TreeSetWorkdays(new RandomDateReader(NUMBER_OF_HOLIDAYS), weekendSet).save(new StreamDateWriter(oStream));
+        Workdays epochDayWorkdays = new EpochDayWorkdays(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray())), weekendSet);
+        OffHeapWorkdays closedWorkdays;
+        SecureRandom random = new SecureRandom();
+        LocalDate startDate = LocalDate.of(2000, 1, 1);
+        try (OffHeapWorkdays offHeapWorkdays = new OffHeapWorkdays(weekendSet)) {
+            for (int i = 0; i < 100; ++i) {
+                // Grow the buffer, then replace all holidays.
+                offHeapWorkdays.addHoliday(startDate.plusDays(random.nextInt(8400)));
+            }
+            offHeapWorkdays.loadAll(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray())));
+            for (int i = 0; i < NUMBER_OF_RANDOM_TEST; ++i) {
+                LocalDate date = startDate.plusDays(random.nextInt(8400));
+                if (random.nextBoolean()) {
+                    assertEquals(epochDayWorkdays.addHoliday(date), offHeapWorkdays.addHoliday(date));
+                } else {
+                    assertEquals(epochDayWorkdays.removeHoliday(date), offHeapWorkdays.removeHoliday(date));
+                }
+                LocalDate rangeStartDate = startDate.plusDays(random.nextInt(9000) - 400);
+                LocalDate rangeEndDate = rangeStartDate.plusDays(random.nextInt(3000));
+                assertEquals(epochDayWorkdays.getWorkdays(rangeStartDate, rangeEndDate), offHeapWorkdays.getWorkdays(rangeStartDate, rangeEndDate));
+            }
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            epochDayWorkdays.save(new StreamDateWriter(expected));
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            offHeapWorkdays.save(new StreamDateWriter(actual));
+            assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+            assertTrue(offHeapWorkdays.getOffHeapBytes() >= Integer.BYTES * NUMBER_OF_HOLIDAYS / 2);
+            closedWorkdays = offHeapWorkdays;
+        }
+        LocalDate date = LocalDate.of(2020, 1, 1);
+        assertThrows(IllegalStateException.class, () -> closedWorkdays.getWorkdays(date, date));
+        assertThrows(IllegalStateException.class, () -> closedWorkdays.addHoliday(date));
+        assertThrows(IllegalStateException.class, () -> closedWorkdays.getOffHeapBytes());
+        closedWorkdays.close();
+
+        // Native memory is released by growth and close without waiting for garbage collection.
+        long totalOffHeapBytes = OffHeapWorkdays.getTotalOffHeapBytes();
+        for (int cycle = 0; cycle < 3; ++cycle) {
+            OffHeapWorkdays offHeapWorkdays = new OffHeapWorkdays(weekendSet);
+            for (int i = 0; i < 1000; ++i) {
+                offHeapWorkdays.addHoliday(startDate.plusDays(i));
+                assertTrue(offHeapWorkdays.getOffHeapBytes() >= Integer.BYTES * offHeapWorkdays.size);
+                assertEquals(totalOffHeapBytes + offHeapWorkdays.getOffHeapBytes(), OffHeapWorkdays.getTotalOffHeapBytes());
+            }
+            offHeapWorkdays.loadAll(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray())));
+            assertEquals(totalOffHeapBytes + offHeapWorkdays.getOffHeapBytes(), OffHeapWorkdays.getTotalOffHeapBytes());
+            offHeapWorkdays.close();
+            offHeapWorkdays.close();
+            assertEquals(totalOffHeapBytes, OffHeapWorkdays.getTotalOffHeapBytes());
+        }
+    }
+
+    /**
+     * Verify that union, intersection and difference of calendars having different weekend days
+     * match day by day evaluation, and diff reports added and removed holidays.
+     */
+    @Test
+    public void workdaysAlgebra() throws DateReaderException, IOException
+    {
+        TreeSetWorkdays national = new TreeSetWorkdays(new RandomDateReader(NUMBER_OF_HOLIDAYS), EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+        Workdays company = new EpochDayWorkdays(new RandomDateReader(NUMBER_OF_HOLIDAYS), EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY));
+        Workdays union = WorkdaysAlgebra.union(national, company);
+        Workdays intersection = WorkdaysAlgebra.intersection(national, company);
+        Workdays difference = WorkdaysAlgebra.difference(national, company);
+        assertEquals(EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY, DayOfWeek.SUNDAY), union.getWeekendDays());
+        assertEquals(EnumSet.of(DayOfWeek.SATURDAY), intersection.getWeekendDays());
+        for (LocalDate date = LocalDate.of(1999, 1, 1); date.isBefore(LocalDate.of(2024, 1, 1)); date = date.plusDays(1)) {
+            boolean isNationalHoliday = 0 == national.getWorkdays(date, date);
+            boolean isCompanyHoliday = 0 == company.getWorkdays(date, date);
+            assertEquals(isNationalHoliday || isCompanyHoliday, 0 == union.getWorkdays(date, date));
+            assertEquals(isNationalHoliday && isCompanyHoliday, 0 == intersection.getWorkdays(date, date));
+            boolean isNationalWeekend = national.getWeekendDays().contains(date.getDayOfWeek());
+            assertEquals(isNationalWeekend || isNationalHoliday && !isCompanyHoliday, 0 == difference.getWorkdays(date, date));
+        }
+
+        // Changes of the same calendar are streamed as added and removed holidays.
+        ByteArrayOutputStream oStream = new ByteArrayOutputStream();
+        national.save(new StreamDateWriter(oStream));
+        Workdays changed = new ConcurrentWorkdays(new StreamDateReader(new ByteArrayInputStream(oStream.toByteArray())), national.getWeekendDays());
+        List<Integer> expectedAdded = new ArrayList<>();
+        List<Integer> expectedRemoved = new ArrayList<>();
+        SecureRandom random = new SecureRandom();
+        LocalDate startDate = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < 100; ++i) {
+            LocalDate date = startDate.plusDays(random.nextInt(8400));
+            if (0 == national.getWorkdays(date, date) || !changed.addHoliday(date)) {
+                continue;
+            }
+            expectedAdded.add((int) date.toEpochDay());
+        }
+        for (LocalDate date : new ArrayList<>(national.holidaySet)) {
+            if (random.nextInt(10) == 0 && changed.removeHoliday(date)) {
+                expectedRemoved.add((int) date.toEpochDay());
+            }
+        }
+        expectedAdded.sort(null);
+        ArrayDateWriter added = new ArrayDateWriter();
+        ArrayDateWriter removed = new ArrayDateWriter();
+        assertEquals(expectedAdded.size() + expectedRemoved.size(), WorkdaysAlgebra.diff(national, changed, added, removed));
+        assertArrayEquals(expectedAdded.stream().mapToInt(Integer::intValue).toArray(), added.toArray());
+        assertArrayEquals(expectedRemoved.stream().mapToInt(Integer::intValue).toArray(), removed.toArray());
+    }
+
 }